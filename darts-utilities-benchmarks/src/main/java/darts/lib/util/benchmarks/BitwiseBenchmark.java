@@ -0,0 +1,73 @@
+package darts.lib.util.benchmarks;
+
+import darts.lib.util.OctetString;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the word-wide bitwise operations on {@link OctetString} against
+ * the per-octet loop over {@link OctetString#octetAt(int)} they replace.
+ * Lengths 20 and 32 correspond to typical node IDs (SHA-1, SHA-256).
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitwiseBenchmark {
+
+    @Param({"20", "32", "4096"})
+    public int length;
+
+    private OctetString target;
+    private OctetString left;
+    private OctetString right;
+
+    @Setup
+    public void setUp() {
+        // Both candidates differ from the target in the last octet only, so
+        // comparing their distances has to scan everything
+        target = OctetString.randomString(length);
+        final byte[] bytes = target.toByteArray();
+        bytes[length - 1] ^= 1;
+        left = OctetString.fromByteArray(bytes);
+        bytes[length - 1] ^= 3;
+        right = OctetString.fromByteArray(bytes);
+    }
+
+    @Benchmark
+    public OctetString xor() {
+        return left.xor(right);
+    }
+
+    @Benchmark
+    public OctetString bytewiseXor() {
+        final OctetString.Builder builder = OctetString.builder();
+        for (int p = 0; p < length; ++p) builder.append(left.octetAt(p) ^ right.octetAt(p));
+        return builder.toOctetString();
+    }
+
+    @Benchmark
+    public int bitCount() {
+        return left.bitCount();
+    }
+
+    @Benchmark
+    public int compareDistance() {
+        return target.compareDistance(left, right);
+    }
+
+    @Benchmark
+    public int bytewiseCompareDistance() {
+        for (int p = 0; p < length; ++p) {
+            final int t = target.octetAt(p);
+            final int dl = t ^ left.octetAt(p);
+            final int dr = t ^ right.octetAt(p);
+            if (dl != dr) return Integer.compare(dl, dr);
+        }
+        return 0;
+    }
+}
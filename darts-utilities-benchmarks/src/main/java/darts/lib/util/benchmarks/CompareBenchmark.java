@@ -0,0 +1,74 @@
+package darts.lib.util.benchmarks;
+
+import darts.lib.util.OctetString;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link OctetString#compareTo(OctetString)} and
+ * {@link OctetString#equals(Object)} against the original byte-at-a-time
+ * loop. The two keys only differ in their last octet, so every
+ * comparison has to scan the full length. The array range variants
+ * show the cost of wrapping an incoming buffer before comparing it.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompareBenchmark {
+
+    @Param({"8", "32", "256", "4096"})
+    public int keyLength;
+
+    private OctetString left;
+    private OctetString right;
+    private byte[] leftBytes;
+    private byte[] rightBytes;
+
+    @Setup
+    public void setUp() {
+        left = OctetString.randomString(keyLength);
+        leftBytes = left.toByteArray();
+        rightBytes = leftBytes.clone();
+        rightBytes[keyLength - 1] ^= 1;
+        right = OctetString.fromByteArray(rightBytes);
+    }
+
+    @Benchmark
+    public int compareTo() {
+        return left.compareTo(right);
+    }
+
+    @Benchmark
+    public int bytewiseCompare() {
+        final byte[] lb = leftBytes;
+        final byte[] rb = rightBytes;
+        final int llen = lb.length;
+        final int rlen = rb.length;
+        final int mlen = Math.min(llen, rlen);
+        for (int p = 0; p < mlen; ++p) {
+            final int diff = (0xff & lb[p]) - (0xff & rb[p]);
+            if (diff != 0) return diff;
+        }
+        return Integer.compare(llen, rlen);
+    }
+
+    @Benchmark
+    public boolean equals() {
+        return left.equals(right);
+    }
+
+    @Benchmark
+    public int compareToArrayRange() {
+        return left.compareTo(rightBytes, 0, rightBytes.length);
+    }
+
+    @Benchmark
+    public int compareToCopiedRange() {
+        return left.compareTo(OctetString.fromByteArray(rightBytes, 0, rightBytes.length));
+    }
+}
@@ -0,0 +1,67 @@
+package darts.lib.util.benchmarks;
+
+import darts.lib.util.OctetString;
+import darts.lib.util.OctetStringFraming;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link OctetStringFraming} for small records.
+ * Each invocation writes or reads {@link #COUNT} records, so the score has
+ * to be multiplied by that number to get records per second.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FramingBenchmark {
+
+    private static final int COUNT = 10000;
+
+    @Param({"VARINT", "FIXED_32"})
+    public OctetStringFraming.Prefix prefix;
+
+    @Param({"16", "100"})
+    public int recordLength;
+
+    private OctetStringFraming codec;
+    private OctetString[] records;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        codec = prefix == OctetStringFraming.Prefix.VARINT? OctetStringFraming.varint() : OctetStringFraming.fixed32();
+        final Random random = new Random(1234);
+        records = new OctetString[COUNT];
+        for (int k = 0; k < COUNT; ++k) records[k] = OctetString.randomString(1 + random.nextInt(recordLength));
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (OctetStringFraming.Writer writer = codec.writer(sink)) {
+            for (OctetString record: records) writer.write(record);
+        }
+        encoded = sink.toByteArray();
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        try (OctetStringFraming.Writer writer = codec.writer(OutputStream.nullOutputStream())) {
+            for (OctetString record: records) writer.write(record);
+        }
+    }
+
+    @Benchmark
+    public void read(Blackhole bh) throws IOException {
+        final OctetStringFraming.Reader reader = codec.reader(new ByteArrayInputStream(encoded));
+        OctetString record;
+        while ((record = reader.next()) != null) bh.consume(record);
+    }
+}
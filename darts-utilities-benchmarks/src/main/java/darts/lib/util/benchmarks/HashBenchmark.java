@@ -0,0 +1,41 @@
+package darts.lib.util.benchmarks;
+
+import darts.lib.util.OctetString;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link OctetString#hash64()} against computing {@link OctetString#hashCode()}.
+ * Since the latter is cached by each instance, the benchmark hashes a fresh
+ * slice every time, which is cheap to create and does not copy data.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashBenchmark {
+
+    @Param({"8", "32", "256", "4096"})
+    public int keyLength;
+
+    private OctetString key;
+
+    @Setup
+    public void setUp() {
+        key = OctetString.randomString(keyLength + 1);
+    }
+
+    @Benchmark
+    public long hash64() {
+        return key.substring(1).hash64();
+    }
+
+    @Benchmark
+    public int hashCode31() {
+        return key.substring(1).hashCode();
+    }
+}
@@ -0,0 +1,51 @@
+package darts.lib.util.benchmarks;
+
+import darts.lib.util.OctetString;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of generating random 16-octet tokens from many
+ * threads at once. {@link #sharedSecureRandom()} reproduces the former
+ * implementation, which drew from a single shared generator. Run with
+ * {@code -t 1}, {@code -t 2}, ... to see how each variant scales with the
+ * number of threads.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class RandomBenchmark {
+
+    private static final int TOKEN_LENGTH = 16;
+
+    private final SecureRandom shared = new SecureRandom();
+
+    @Benchmark
+    public OctetString sharedSecureRandom() {
+        return OctetString.randomString(TOKEN_LENGTH, shared);
+    }
+
+    @Benchmark
+    public OctetString threadLocalSecureRandom() {
+        return OctetString.randomString(TOKEN_LENGTH);
+    }
+
+    @Benchmark
+    public OctetString threadLocalRandom() {
+        return OctetString.randomString(TOKEN_LENGTH, ThreadLocalRandom.current());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(64)
+    public OctetString[] bulk() {
+        return OctetString.randomStrings(64, TOKEN_LENGTH);
+    }
+}
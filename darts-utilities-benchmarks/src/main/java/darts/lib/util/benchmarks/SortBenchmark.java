@@ -0,0 +1,69 @@
+package darts.lib.util.benchmarks;
+
+import darts.lib.util.OctetString;
+import darts.lib.util.OctetStrings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link OctetStrings#sort(OctetString[])} against the JDK's
+ * comparison sorts. Keys are random, with a few common prefixes, which is
+ * typical for composite keys.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SortBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int keyCount;
+
+    @Param({"16"})
+    public int keyLength;
+
+    private OctetString[] original;
+    private OctetString[] keys;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        final Random random = new Random(4711);
+        final OctetString[] prefixes = new OctetString[16];
+        for (int k = 0; k < prefixes.length; ++k) prefixes[k] = OctetString.randomString(4);
+        original = new OctetString[keyCount];
+        final byte[] suffix = new byte[keyLength - 4];
+        for (int k = 0; k < keyCount; ++k) {
+            random.nextBytes(suffix);
+            original[k] = OctetString.builder().append(prefixes[random.nextInt(prefixes.length)]).append(suffix).toOctetString();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        keys = original.clone();
+    }
+
+    @Benchmark
+    public OctetString[] radixSort() {
+        OctetStrings.sort(keys);
+        return keys;
+    }
+
+    @Benchmark
+    public OctetString[] arraysSort() {
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    @Benchmark
+    public OctetString[] arraysParallelSort() {
+        Arrays.parallelSort(keys);
+        return keys;
+    }
+}
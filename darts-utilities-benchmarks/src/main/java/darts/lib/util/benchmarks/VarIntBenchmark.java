@@ -0,0 +1,63 @@
+package darts.lib.util.benchmarks;
+
+import darts.lib.util.ByteOrder;
+import darts.lib.util.OctetString;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding throughput of varint encoded integers through
+ * {@link OctetString.Reader}, compared to reading fixed-size 32-bit
+ * values. {@code small} values all fit into a single octet, {@code mixed}
+ * values are uniformly spread over one to five octet encodings.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(VarIntBenchmark.COUNT)
+public class VarIntBenchmark {
+
+    static final int COUNT = 4096;
+
+    @Param({"small", "mixed"})
+    public String distribution;
+
+    private OctetString varints;
+    private OctetString fixed;
+
+    @Setup
+    public void setUp() {
+        final Random rng = new Random(42);
+        final OctetString.Builder vb = OctetString.builder();
+        final OctetString.Builder fb = OctetString.builder();
+        for (int p = 0; p < COUNT; ++p) {
+            final int value = "small".equals(distribution) ? rng.nextInt(128) : rng.nextInt() >>> (7 * rng.nextInt(5));
+            vb.appendVarInt(value);
+            fb.append(value, ByteOrder.LITTLE_ENDIAN);
+        }
+        varints = vb.toOctetString();
+        fixed = fb.toOctetString();
+    }
+
+    @Benchmark
+    public int readVarInt() {
+        final OctetString.Reader reader = varints.reader();
+        int sum = 0;
+        for (int p = 0; p < COUNT; ++p) sum += reader.readVarInt();
+        return sum;
+    }
+
+    @Benchmark
+    public int readFixedInt() {
+        final OctetString.Reader reader = fixed.reader();
+        int sum = 0;
+        for (int p = 0; p < COUNT; ++p) sum += reader.readInt(ByteOrder.LITTLE_ENDIAN);
+        return sum;
+    }
+}
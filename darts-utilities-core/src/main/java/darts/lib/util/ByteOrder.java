@@ -1,77 +1,103 @@
 package darts.lib.util;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
 public enum ByteOrder {
 
-    BIG_ENDIAN {
+    BIG_ENDIAN(java.nio.ByteOrder.BIG_ENDIAN) {
         @Override
         public void put(short value, OctetString.Builder buffer) {
-            buffer.append(((int) value) >> 8).append(value);
+            final int p = buffer.claim(2);
+            BE_SHORT_ARRAY.set(buffer.storage(), p, value);
         }
         @Override
         public void put(int value, OctetString.Builder buffer) {
-            buffer.append(value >> 24).append(value >> 16).append(value >> 8).append(value);
+            final int p = buffer.claim(4);
+            BE_INT_ARRAY.set(buffer.storage(), p, value);
         }
         @Override
         public void put(long value, OctetString.Builder buffer) {
-            buffer
-                .append((int)(value >> 56)).append((int)(value >> 48)).append((int)(value >> 40))
-                .append((int)(value >> 32)).append((int)(value >> 24)).append((int)(value >> 16))
-                .append((int)(value >> 8)).append((int) value);
+            final int p = buffer.claim(8);
+            BE_LONG_ARRAY.set(buffer.storage(), p, value);
         }
         @Override
         public short shortAt(OctetString buffer, int index) {
-            return (short) (ldi(buffer, index, 8) | ldi(buffer, index + 1, 0));
+            final int p = buffer.position(index, 2);
+            final byte[] array = buffer.array();
+            return array != null? (short) BE_SHORT_ARRAY.get(array, p) : (short) BE_SHORT_BUFFER.get(buffer.buffer(), p);
         }
         @Override
         public int intAt(OctetString buffer, int index) {
-            return ldi(buffer, index, 24) | ldi(buffer, index + 1, 16) | ldi(buffer, index + 2, 8) | ldi(buffer, index + 3, 0);
+            final int p = buffer.position(index, 4);
+            final byte[] array = buffer.array();
+            return array != null? (int) BE_INT_ARRAY.get(array, p) : (int) BE_INT_BUFFER.get(buffer.buffer(), p);
         }
         @Override
         public long longAt(OctetString buffer, int index) {
-            return ldl(buffer, index, 56) | ldl(buffer, index + 1, 48) | ldl(buffer, index + 2, 40)
-                | ldl(buffer, index + 3, 32) | ldl(buffer, index + 4, 24) | ldl(buffer, index + 5, 16)
-                | ldl(buffer, index + 6, 8) | ldl(buffer, index + 7, 0);
+            final int p = buffer.position(index, 8);
+            final byte[] array = buffer.array();
+            return array != null? (long) BE_LONG_ARRAY.get(array, p) : (long) BE_LONG_BUFFER.get(buffer.buffer(), p);
         }
     },
 
-    LITTLE_ENDIAN {
+    LITTLE_ENDIAN(java.nio.ByteOrder.LITTLE_ENDIAN) {
         @Override
         public void put(short value, OctetString.Builder buffer) {
-            buffer.append(value).append(((int) value) >> 8);
+            final int p = buffer.claim(2);
+            LE_SHORT_ARRAY.set(buffer.storage(), p, value);
         }
         @Override
         public void put(int value, OctetString.Builder buffer) {
-            buffer.append(value).append(value >> 8).append(value >> 16).append(value >> 24);
+            final int p = buffer.claim(4);
+            LE_INT_ARRAY.set(buffer.storage(), p, value);
         }
         @Override
         public void put(long value, OctetString.Builder buffer) {
-            buffer
-                .append((int) value).append((int)(value >> 8)).append((int)(value >> 16))
-                .append((int)(value >> 24)).append((int)(value >> 32)).append((int)(value >> 40))
-                .append((int)(value >> 48)).append((int)(value >> 56));
+            final int p = buffer.claim(8);
+            LE_LONG_ARRAY.set(buffer.storage(), p, value);
         }
         @Override
         public short shortAt(OctetString buffer, int index) {
-            return (short) (ldi(buffer, index, 0) | ldi(buffer, index + 1, 8));
+            final int p = buffer.position(index, 2);
+            final byte[] array = buffer.array();
+            return array != null? (short) LE_SHORT_ARRAY.get(array, p) : (short) LE_SHORT_BUFFER.get(buffer.buffer(), p);
         }
         @Override
         public int intAt(OctetString buffer, int index) {
-            return ldi(buffer, index, 0) | ldi(buffer, index + 1, 8) | ldi(buffer, index + 2, 16) | ldi(buffer, index + 3, 24);
+            final int p = buffer.position(index, 4);
+            final byte[] array = buffer.array();
+            return array != null? (int) LE_INT_ARRAY.get(array, p) : (int) LE_INT_BUFFER.get(buffer.buffer(), p);
         }
         @Override
         public long longAt(OctetString buffer, int index) {
-            return ldl(buffer, index, 0) | ldl(buffer, index + 1, 8) | ldl(buffer, index + 2, 16)
-                | ldl(buffer, index + 3, 24) | ldl(buffer, index + 4, 32) | ldl(buffer, index + 5, 40)
-                | ldl(buffer, index + 6, 48) | ldl(buffer, index + 7, 56);
+            final int p = buffer.position(index, 8);
+            final byte[] array = buffer.array();
+            return array != null? (long) LE_LONG_ARRAY.get(array, p) : (long) LE_LONG_BUFFER.get(buffer.buffer(), p);
         }
     },;
 
-    protected static long ldl(OctetString buffer, int index, int shift) {
-        return (((long) buffer.octetAt(index)) & 0xFFL) << shift;
-    }
+    // VarHandles are only constant-folded by the JIT when held in static final fields
+
+    private static final VarHandle BE_SHORT_ARRAY = MethodHandles.byteArrayViewVarHandle(short[].class, java.nio.ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BE_INT_ARRAY = MethodHandles.byteArrayViewVarHandle(int[].class, java.nio.ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BE_LONG_ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, java.nio.ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BE_SHORT_BUFFER = MethodHandles.byteBufferViewVarHandle(short[].class, java.nio.ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BE_INT_BUFFER = MethodHandles.byteBufferViewVarHandle(int[].class, java.nio.ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BE_LONG_BUFFER = MethodHandles.byteBufferViewVarHandle(long[].class, java.nio.ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LE_SHORT_ARRAY = MethodHandles.byteArrayViewVarHandle(short[].class, java.nio.ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LE_INT_ARRAY = MethodHandles.byteArrayViewVarHandle(int[].class, java.nio.ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LE_LONG_ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, java.nio.ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LE_SHORT_BUFFER = MethodHandles.byteBufferViewVarHandle(short[].class, java.nio.ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LE_INT_BUFFER = MethodHandles.byteBufferViewVarHandle(int[].class, java.nio.ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LE_LONG_BUFFER = MethodHandles.byteBufferViewVarHandle(long[].class, java.nio.ByteOrder.LITTLE_ENDIAN);
+
+    private final java.nio.ByteOrder order;
 
-    protected static int ldi(OctetString buffer, int index, int shift) {
-        return (buffer.octetAt(index) & 0xFF) << shift;
+    ByteOrder(java.nio.ByteOrder order) {
+        this.order = order;
     }
 
     public abstract void put(short value, OctetString.Builder buffer);
@@ -97,4 +123,71 @@ public enum ByteOrder {
     public double doubleAt(OctetString buffer, int index) {
         return Double.longBitsToDouble(longAt(buffer, index));
     }
+
+    // region Bulk Access
+
+    public void putAll(short[] src, int from, int to, OctetString.Builder buffer) {
+        Objects.checkFromToIndex(from, to, src.length);
+        claimView(buffer, to - from, 2).asShortBuffer().put(src, from, to - from);
+    }
+
+    public void putAll(int[] src, int from, int to, OctetString.Builder buffer) {
+        Objects.checkFromToIndex(from, to, src.length);
+        claimView(buffer, to - from, 4).asIntBuffer().put(src, from, to - from);
+    }
+
+    public void putAll(long[] src, int from, int to, OctetString.Builder buffer) {
+        Objects.checkFromToIndex(from, to, src.length);
+        claimView(buffer, to - from, 8).asLongBuffer().put(src, from, to - from);
+    }
+
+    public void putAll(float[] src, int from, int to, OctetString.Builder buffer) {
+        Objects.checkFromToIndex(from, to, src.length);
+        claimView(buffer, to - from, 4).asFloatBuffer().put(src, from, to - from);
+    }
+
+    public void putAll(double[] src, int from, int to, OctetString.Builder buffer) {
+        Objects.checkFromToIndex(from, to, src.length);
+        claimView(buffer, to - from, 8).asDoubleBuffer().put(src, from, to - from);
+    }
+
+    public void shortsAt(OctetString buffer, int index, short[] dst, int from, int to) {
+        Objects.checkFromToIndex(from, to, dst.length);
+        readView(buffer, index, to - from, 2).asShortBuffer().get(dst, from, to - from);
+    }
+
+    public void intsAt(OctetString buffer, int index, int[] dst, int from, int to) {
+        Objects.checkFromToIndex(from, to, dst.length);
+        readView(buffer, index, to - from, 4).asIntBuffer().get(dst, from, to - from);
+    }
+
+    public void longsAt(OctetString buffer, int index, long[] dst, int from, int to) {
+        Objects.checkFromToIndex(from, to, dst.length);
+        readView(buffer, index, to - from, 8).asLongBuffer().get(dst, from, to - from);
+    }
+
+    public void floatsAt(OctetString buffer, int index, float[] dst, int from, int to) {
+        Objects.checkFromToIndex(from, to, dst.length);
+        readView(buffer, index, to - from, 4).asFloatBuffer().get(dst, from, to - from);
+    }
+
+    public void doublesAt(OctetString buffer, int index, double[] dst, int from, int to) {
+        Objects.checkFromToIndex(from, to, dst.length);
+        readView(buffer, index, to - from, 8).asDoubleBuffer().get(dst, from, to - from);
+    }
+
+    private ByteBuffer claimView(OctetString.Builder buffer, int count, int width) {
+        final int size = Math.multiplyExact(count, width);
+        final int p = buffer.claim(size);
+        return ByteBuffer.wrap(buffer.storage(), p, size).order(order);
+    }
+
+    private ByteBuffer readView(OctetString buffer, int index, int count, int width) {
+        final long size = (long) count * width;
+        if (size > buffer.length()) throw new IndexOutOfBoundsException();
+        buffer.position(index, (int) size);
+        return buffer.view(index, index + (int) size).order(order);
+    }
+
+    // endregion
 }
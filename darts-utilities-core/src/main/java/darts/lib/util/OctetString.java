@@ -2,15 +2,54 @@ package darts.lib.util;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
 
 /**
  * An immutable sequence of bytes/octets.
+ *
+ * <p>Instances may share their backing storage with other instances.
+ * In particular, {@link #substring(int, int)} answers a view onto
+ * the original array rather than a copy. Use {@link #compact()} in order
+ * to obtain an instance, which no longer holds onto a potentially much
+ * larger parent buffer.
+ *
+ * <p>Octet strings are usually backed by a {@code byte[]} on the heap.
+ * Large contents may alternatively live off-heap, either in a direct
+ * byte buffer (see {@link #toOffHeap()}) or in a memory-mapped file
+ * region (see {@link #map(Path, long, long)}). Apart from performance
+ * characteristics, both kinds of instances behave identically.
+ *
+ * <p>Finally, {@link #concat(OctetString...)} and {@link #ropeBuilder()}
+ * answer ropes, i.e., octet strings composed of other octet strings without
+ * copying them. Ropes support random access, comparison, and writing to
+ * channels directly; most other operations flatten the rope into a single
+ * array on first use, and reuse that array afterwards.
  */
 
 @SuppressWarnings("WeakerAccess")
@@ -21,11 +60,35 @@ public final class OctetString implements Serializable, Comparable<OctetString>,
 
     // region Fields and Constructor
 
+    // Exactly one of `data`, `buffer`, and `rope` is non-null. Ropes always
+    // have an offset of 0.
+
     private final byte[] data;
+    private final ByteBuffer buffer;
+    private final Rope rope;
+    private final int offset;
+    private final int length;
     private transient int hash;
 
     private OctetString(byte[] data) {
+        this(data, null, 0, data.length);
+    }
+
+    private OctetString(byte[] data, ByteBuffer buffer, int offset, int length) {
         this.data = data;
+        this.buffer = buffer;
+        this.rope = null;
+        this.offset = offset;
+        this.length = length;
+        this.hash = 0;
+    }
+
+    private OctetString(Rope rope) {
+        this.data = null;
+        this.buffer = null;
+        this.rope = rope;
+        this.offset = 0;
+        this.length = rope.length();
         this.hash = 0;
     }
 
@@ -68,36 +131,461 @@ public final class OctetString implements Serializable, Comparable<OctetString>,
         return array.length == 0? EMPTY : new OctetString(array.clone());
     }
 
+    /**
+     * Answers the concatenation of the given octet strings. The result is
+     * a rope, which references the parts instead of copying them. Ropes are
+     * flat lists of parts, so each call copies the part lists of all its
+     * arguments; building a rope piece by piece via {@code r = concat(r, part)}
+     * takes quadratic time. Pass all parts in a single call, or collect them
+     * in a {@link #ropeBuilder() rope builder} instead.
+     *
+     * @param parts     octet strings to concatenate
+     *
+     * @return  the concatenation of all parts in order
+     */
+
+    public static OctetString concat(OctetString... parts) {
+        int count = 0;
+        for (OctetString part: parts) {
+            if (part.rope != null) count += part.rope.parts.length;
+            else if (part.length > 0) count += 1;
+        }
+        final RopeBuilder builder = new RopeBuilder(count);
+        for (OctetString part: parts) builder.append(part);
+        return builder.toOctetString();
+    }
+
+    public static RopeBuilder ropeBuilder() {
+        return new RopeBuilder(16);
+    }
+
     public static OctetString fromString(String s) {
         final byte[] arr = Base64.getUrlDecoder().decode(s);
         return arr.length == 0? EMPTY : new OctetString(arr);
     }
 
-    private static final SecureRandom prng = new SecureRandom();
+    /**
+     * Answers the UTF-8 encoding of the given characters. Unpaired surrogates
+     * are encoded as {@code '?'}, just like {@link String#getBytes(Charset)}
+     * does.
+     *
+     * @param s     characters to encode
+     *
+     * @return  the encoded octets
+     */
+
+    public static OctetString fromUtf8(CharSequence s) {
+        if (s.length() == 0) return EMPTY;
+        // For strings, the JDK's encoder is hard to beat, and its result can
+        // be adopted without copying.
+        else if (s instanceof String) return new OctetString(((String) s).getBytes(StandardCharsets.UTF_8));
+        else return new Builder(s.length()).appendUtf8(s).detach();
+    }
+
+    /**
+     * Maps the given region of a file into memory, answering an octet
+     * string, whose contents is backed directly by the mapped pages.
+     * No data is copied onto the heap. The file must not be modified
+     * while the result is in use, as that would violate the immutability
+     * of the octet string.
+     *
+     * @param path      file to map
+     * @param offset    position of the first byte to map
+     * @param length    number of bytes to map
+     *
+     * @return  an octet string backed by the mapped region
+     *
+     * @throws IOException  if the file cannot be opened or mapped
+     */
+
+    public static OctetString map(Path path, long offset, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return map(channel, offset, length);
+        }
+    }
+
+    public static OctetString map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return map(channel, 0, channel.size());
+        }
+    }
+
+    public static OctetString map(FileChannel channel, long offset, long length) throws IOException {
+        if (offset < 0 || length < 0) throw new IndexOutOfBoundsException();
+        else if (length > Integer.MAX_VALUE) throw new IllegalArgumentException("region too large: " + length);
+        else if (length == 0) return EMPTY;
+        else return new OctetString(null, channel.map(FileChannel.MapMode.READ_ONLY, offset, length), 0, (int) length);
+    }
+
+    /**
+     * Parses a string of hexadecimal digits, two per octet. Both upper and
+     * lower case digits are accepted.
+     *
+     * @param s     string to parse
+     *
+     * @return  the octet string represented by {@code s}
+     *
+     * @throws IllegalArgumentException if {@code s} has odd length or contains
+     *         characters other than hex digits
+     */
+
+    public static OctetString fromHex(CharSequence s) {
+        final int len = s.length();
+        if ((len & 1) != 0) throw new IllegalArgumentException("odd number of hex digits");
+        else if (len == 0) return EMPTY;
+        else {
+            final byte[] buf = new byte[len >>> 1];
+            OctetStringSupport.decodeHex(s, 0, len, buf, 0);
+            return new OctetString(buf);
+        }
+    }
+
+    private static final int BASE64_CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Reads URL-safe Base64 encoded data from the given stream until the end
+     * of the stream is reached, and answers the decoded octets. Unlike
+     * {@link #fromString(String)}, this does not need the encoded form to be
+     * held in memory. The data is decoded into fixed-size chunks, which
+     * become the parts of the resulting rope, so it is never copied.
+     *
+     * @param in    stream to read from
+     *
+     * @return  the decoded octet string
+     *
+     * @throws IOException  if reading fails or the data is malformed
+     */
+
+    public static OctetString readBase64(InputStream in) throws IOException {
+        return segmentedBuilder(BASE64_CHUNK_SIZE).appendBase64(in).detachChunks();
+    }
+
+    /**
+     * Reads octets from the given channel until either the end of the stream
+     * is reached, or {@code maxLength} octets have been read. If the channel is
+     * seekable, the buffer is allocated once from the number of octets left in
+     * the channel; otherwise, it grows as data arrives. The channel must be in
+     * blocking mode.
+     *
+     * @param channel       channel to read from
+     * @param maxLength     maximum number of octets to read
+     *
+     * @return  the octets read
+     *
+     * @throws IOException  if reading fails
+     */
+
+    public static OctetString readFrom(ReadableByteChannel channel, int maxLength) throws IOException {
+        if (maxLength < 0) throw new IllegalArgumentException("negative length: " + maxLength);
+        int capacity = Math.min(maxLength, 8192);
+        if (channel instanceof SeekableByteChannel) {
+            final SeekableByteChannel seekable = (SeekableByteChannel) channel;
+            final long left = seekable.size() - seekable.position();
+            // Read one more octet than expected, so we find out if the channel
+            // grew in the meantime without another round-trip.
+            capacity = (int) Math.max(0, Math.min(maxLength, left + 1));
+        }
+        byte[] buf = new byte[capacity];
+        int filled = 0;
+        while (filled < maxLength) {
+            if (filled == buf.length) buf = Arrays.copyOf(buf, (int) Math.min(maxLength, Math.max(16L, 2L * buf.length)));
+            final int n = channel.read(ByteBuffer.wrap(buf, filled, buf.length - filled));
+            if (n < 0) break;
+            filled += n;
+        }
+        if (filled == 0) return EMPTY;
+        else if (buf.length - filled <= buf.length >>> 3) return new OctetString(buf, null, 0, filled);
+        else return new OctetString(Arrays.copyOf(buf, filled));
+    }
+
+    /**
+     * Reads exactly {@code length} octets from the given channel. The result
+     * is allocated once up front. The channel must be in blocking mode.
+     *
+     * @param channel   channel to read from
+     * @param length    number of octets to read
+     *
+     * @return  the octets read
+     *
+     * @throws EOFException  if the stream ends before enough octets have been read
+     * @throws IOException  if reading fails
+     */
+
+    public static OctetString readFully(ReadableByteChannel channel, int length) throws IOException {
+        if (length < 0) throw new IllegalArgumentException("negative length: " + length);
+        else if (length == 0) return EMPTY;
+        else {
+            final ByteBuffer buf = ByteBuffer.allocate(length);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf) < 0) throw new EOFException("expected " + length + " octets, but got only " + buf.position());
+            }
+            return new OctetString(buf.array());
+        }
+    }
+
+    public static OctetString readFrom(InputStream in, int maxLength) throws IOException {
+        if (maxLength < 0) throw new IllegalArgumentException("negative length: " + maxLength);
+        final byte[] buf = in.readNBytes(maxLength);
+        return buf.length == 0? EMPTY : new OctetString(buf);
+    }
+
+    public static OctetString readFully(InputStream in, int length) throws IOException {
+        if (length < 0) throw new IllegalArgumentException("negative length: " + length);
+        else if (length == 0) return EMPTY;
+        else {
+            final byte[] buf = new byte[length];
+            final int n = in.readNBytes(buf, 0, length);
+            if (n < length) throw new EOFException("expected " + length + " octets, but got only " + n);
+            return new OctetString(buf);
+        }
+    }
+
+    // A single shared SecureRandom serializes all callers on its internal
+    // lock, so each thread gets its own instance.
+
+    private static final ThreadLocal<SecureRandom> prng = ThreadLocal.withInitial(SecureRandom::new);
+
+    /**
+     * Answers an octet string of the given length filled with random octets
+     * from a cryptographically strong generator.
+     *
+     * @param len   number of octets
+     *
+     * @return  a new random octet string
+     */
 
     public static OctetString randomString(int len) {
+        return randomString(len, prng.get());
+    }
+
+    /**
+     * Answers an octet string of the given length filled with random octets
+     * taken from {@code source}. Use this with, e.g., {@link java.util.concurrent.ThreadLocalRandom}
+     * when the result does not need to be unpredictable.
+     *
+     * @param len       number of octets
+     * @param source    random number generator to use
+     *
+     * @return  a new random octet string
+     */
+
+    public static OctetString randomString(int len, Random source) {
         if (len < 0) throw new IllegalArgumentException();
         else if (len == 0) return EMPTY;
         else {
             final byte[] buf = new byte[len];
-            prng.nextBytes(buf);
+            source.nextBytes(buf);
             return new OctetString(buf);
         }
     }
 
+    /**
+     * Answers {@code count} random octet strings of length {@code len} each.
+     * All of them are slices of a single buffer, which is filled by one call
+     * to the (thread-local, cryptographically strong) generator.
+     *
+     * @param count     number of octet strings
+     * @param len       number of octets in each of them
+     *
+     * @return  an array of new random octet strings
+     */
+
+    public static OctetString[] randomStrings(int count, int len) {
+        if (count < 0 || len < 0) throw new IllegalArgumentException();
+        final OctetString[] result = new OctetString[count];
+        if (len == 0) Arrays.fill(result, EMPTY);
+        else {
+            final byte[] buf = new byte[Math.multiplyExact(count, len)];
+            prng.get().nextBytes(buf);
+            for (int k = 0; k < count; ++k) result[k] = new OctetString(buf, null, k * len, len);
+        }
+        return result;
+    }
+
     // endregion
 
     // region Sub-String Comparisons
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     public boolean startsWith(OctetString os) {
-        final int olen = os.data.length;
-        return data.length >= olen && Arrays.equals(data, 0, olen, os.data, 0, olen);
+        return length >= os.length && regionMatches(0, os);
     }
 
     public boolean endsWith(OctetString os) {
-        final int olen = os.data.length;
-        return data.length >= olen && Arrays.equals(data, data.length - olen, olen, os.data, 0, olen);
+        return length >= os.length && regionMatches(length - os.length, os);
+    }
+
+    private boolean regionMatches(int start, OctetString os) {
+        final int olen = os.length;
+        if (data != null && os.data != null) {
+            final int from = offset + start;
+            return Arrays.equals(data, from, from + olen, os.data, os.offset, os.offset + olen);
+        } else {
+            return OctetStringSupport.compare(segments(start, start + olen), os.segments(0, olen)) == 0;
+        }
+    }
+
+    // endregion
+
+    // region Searching
+
+    /**
+     * Answers the index of the first occurrence of the given octet at or
+     * after position {@code from}, or -1, if there is no such occurrence.
+     * Only the low 8 bits of {@code octet} are considered.
+     *
+     * @param octet     value to look for
+     * @param from      index to start searching at
+     *
+     * @return  the index of the first match or -1
+     */
+
+    public int indexOf(int octet, int from) {
+        final int start = Math.max(from, 0);
+        if (start >= length) return -1;
+        else if (rope != null) return flat().indexOf(octet, start);
+        final int end = offset + length;
+        final int p = data != null
+            ? OctetStringSupport.indexOf(data, offset + start, end, (byte) octet)
+            : OctetStringSupport.indexOf(buffer, offset + start, end, (byte) octet);
+        return p < 0? -1 : p - offset;
+    }
+
+    public int indexOf(int octet) {
+        return indexOf(octet, 0);
+    }
+
+    /**
+     * Answers the index of the last occurrence of the given octet at or
+     * before position {@code from}, or -1, if there is no such occurrence.
+     * Only the low 8 bits of {@code octet} are considered.
+     *
+     * @param octet     value to look for
+     * @param from      index to start searching backwards at
+     *
+     * @return  the index of the last match or -1
+     */
+
+    public int lastIndexOf(int octet, int from) {
+        final int stop = Math.min(from, length - 1) + 1;
+        if (stop <= 0) return -1;
+        else if (rope != null) return flat().lastIndexOf(octet, stop - 1);
+        final int p = data != null
+            ? OctetStringSupport.lastIndexOf(data, offset, offset + stop, (byte) octet)
+            : OctetStringSupport.lastIndexOf(buffer, offset, offset + stop, (byte) octet);
+        return p < 0? -1 : p - offset;
+    }
+
+    public int lastIndexOf(int octet) {
+        return lastIndexOf(octet, length - 1);
+    }
+
+    /**
+     * Answers the index of the first occurrence of {@code needle} in this
+     * octet string starting at or after position {@code from}, or -1, if
+     * there is none. An empty needle is found at {@code from} (clamped to
+     * the valid range).
+     *
+     * @param needle    octet string to look for
+     * @param from      index to start searching at
+     *
+     * @return  the index of the first match or -1
+     */
+
+    public int indexOf(OctetString needle, int from) {
+        final int start = Math.max(from, 0);
+        final int nlen = needle.length;
+        if (nlen == 0) return Math.min(start, length);
+        else if (start > length - nlen) return -1;
+        else if (nlen == 1) return indexOf(needle.rawAt(0), start);
+        else if (rope != null) return flat().indexOf(needle, start);
+        else if (nlen > 3 && length - start >= 128) {
+            final byte[] nd = needle.data != null? needle.data : needle.toByteArray();
+            final int no = needle.data != null? needle.offset : 0;
+            final int p = data != null
+                ? OctetStringSupport.indexOf(data, offset + start, offset + length, nd, no, no + nlen)
+                : OctetStringSupport.indexOf(buffer, offset + start, offset + length, nd, no, no + nlen);
+            return p < 0? -1 : p - offset;
+        } else {
+            final int first = needle.rawAt(0);
+            final int last = length - nlen;
+            for (int p = indexOf(first, start); 0 <= p && p <= last; p = indexOf(first, p + 1)) {
+                if (regionMatches(p, needle)) return p;
+            }
+            return -1;
+        }
+    }
+
+    public int indexOf(OctetString needle) {
+        return indexOf(needle, 0);
+    }
+
+    /**
+     * Answers the index of the last occurrence of {@code needle} in this
+     * octet string starting at or before position {@code from}, or -1, if
+     * there is none.
+     *
+     * @param needle    octet string to look for
+     * @param from      index to start searching backwards at
+     *
+     * @return  the index of the last match or -1
+     */
+
+    public int lastIndexOf(OctetString needle, int from) {
+        final int nlen = needle.length;
+        final int start = Math.min(from, length - nlen);
+        if (start < 0) return -1;
+        else if (nlen == 0) return start;
+        else if (nlen == 1) return lastIndexOf(needle.rawAt(0), start);
+        else if (rope != null) return flat().lastIndexOf(needle, start);
+        else if (nlen > 3 && start >= 128) {
+            final byte[] nd = needle.data != null? needle.data : needle.toByteArray();
+            final int no = needle.data != null? needle.offset : 0;
+            final int p = data != null
+                ? OctetStringSupport.lastIndexOf(data, offset, offset + start + nlen, nd, no, no + nlen)
+                : OctetStringSupport.lastIndexOf(buffer, offset, offset + start + nlen, nd, no, no + nlen);
+            return p < 0? -1 : p - offset;
+        } else {
+            final int first = needle.rawAt(0);
+            for (int p = lastIndexOf(first, start); p >= 0; p = lastIndexOf(first, p - 1)) {
+                if (regionMatches(p, needle)) return p;
+            }
+            return -1;
+        }
+    }
+
+    public int lastIndexOf(OctetString needle) {
+        return lastIndexOf(needle, length);
+    }
+
+    public boolean contains(OctetString needle) {
+        return indexOf(needle, 0) >= 0;
+    }
+
+    /**
+     * Answers the portions of this octet string separated by the given
+     * delimiter octet. The pieces are produced lazily as slices of this
+     * octet string, i.e., without copying. Empty pieces are retained, so
+     * the result has exactly one more element than there are delimiters
+     * in this octet string.
+     *
+     * @param delimiter     delimiter octet
+     *
+     * @return  a traversable producing the pieces in order
+     */
+
+    public Traversable<OctetString> split(int delimiter) {
+        return new Traversable<OctetString>() {
+            @Override
+            public <M> M fold(M seed, BiFunction<? super M, ? super OctetString, ? extends M> fn) {
+                int start = 0;
+                for (int p = indexOf(delimiter, 0); p >= 0; p = indexOf(delimiter, start)) {
+                    seed = fn.apply(seed, substring(start, p));
+                    start = p + 1;
+                }
+                return fn.apply(seed, substring(start));
+            }
+        };
     }
 
     // endregion
@@ -105,95 +593,883 @@ public final class OctetString implements Serializable, Comparable<OctetString>,
     // region Accessing Content
 
     public int octetAt(int index) {
-        return data[index] & 0xff;
+        if (index < 0 || length <= index) throw new IndexOutOfBoundsException();
+        return rawAt(index) & 0xff;
     }
 
     public int length() {
-        return data.length;
+        return length;
     }
 
     public boolean isEmpty() {
-        return data.length == 0;
+        return length == 0;
     }
 
+    /**
+     * Answers the portion of this octet string between {@code start}
+     * (inclusive) and {@code end} (exclusive). The result shares the
+     * backing storage of this instance, so this operation does not copy
+     * any data.
+     *
+     * @param start     start index (inclusive)
+     * @param end       end index (exclusive)
+     *
+     * @return  a view onto the given range of this octet string
+     */
+
     public OctetString substring(int start, int end) {
-        if (start == 0 && end == data.length) return this;
-        return fromByteArray(data, start, end);
+        if (start < 0 || end < start || length < end) throw new IndexOutOfBoundsException();
+        else if (start == 0 && end == length) return this;
+        else if (start == end) return EMPTY;
+        else if (rope != null) return rope.slice(start, end);
+        else return new OctetString(data, buffer, offset + start, end - start);
     }
 
     public OctetString substring(int start) {
-        return substring(start, data.length);
+        return substring(start, length);
+    }
+
+    /**
+     * Answers an octet string with the same contents as this one,
+     * which does not share its backing storage with any other
+     * instance larger than itself. If this instance is already
+     * compact, it is returned as is. Off-heap slices are copied onto
+     * the heap.
+     *
+     * @return  a compact version of this octet string
+     */
+
+    public OctetString compact() {
+        if (data != null) return offset == 0 && length == data.length? this : new OctetString(toByteArray());
+        else if (buffer != null) return offset == 0 && length == buffer.capacity()? this : new OctetString(toByteArray());
+        else return flat();
+    }
+
+    /**
+     * Answers a copy of this octet string, whose contents is held
+     * in a direct byte buffer outside of the Java heap. If this instance
+     * is already stored off-heap, it is returned as is.
+     *
+     * @return  an off-heap version of this octet string
+     */
+
+    public OctetString toOffHeap() {
+        if (buffer != null || length == 0) return this;
+        else {
+            final ByteBuffer copy = ByteBuffer.allocateDirect(length);
+            for (ByteBuffer segment: segments(0, length)) copy.put(segment);
+            return new OctetString(null, copy.flip().asReadOnlyBuffer(), 0, length);
+        }
+    }
+
+    public boolean isOffHeap() {
+        return buffer != null;
     }
 
     public byte[] toByteArray() {
-        return data.clone();
+        if (data != null) return Arrays.copyOfRange(data, offset, offset + length);
+        else {
+            final byte[] copy = new byte[length];
+            getBytes(0, length, copy, 0);
+            return copy;
+        }
     }
 
     public void getBytes(int srcStart, int srcEnd, byte[] buffer, int dstStart) {
-        if (srcStart < 0 || srcEnd < srcStart || data.length < srcEnd) {
+        if (srcStart < 0 || srcEnd < srcStart || length < srcEnd) {
             throw new IndexOutOfBoundsException();
         } else {
             final int len = srcEnd - srcStart;
             if (dstStart < 0 || buffer.length - len < dstStart) throw new IndexOutOfBoundsException();
             else {
-                System.arraycopy(data, srcStart, buffer, dstStart, len);
+                if (data != null) System.arraycopy(data, offset + srcStart, buffer, dstStart, len);
+                else {
+                    int p = dstStart;
+                    for (ByteBuffer segment: segments(srcStart, srcEnd)) {
+                        final int n = segment.remaining();
+                        segment.get(buffer, p, n);
+                        p += n;
+                    }
+                }
             }
         }
     }
 
     public ByteBuffer toByteBuffer(boolean readOnly) {
-        return readOnly? ByteBuffer.wrap(data).asReadOnlyBuffer() : ByteBuffer.wrap(data.clone());
+        return readOnly? view(0, length).slice().asReadOnlyBuffer() : ByteBuffer.wrap(toByteArray());
+    }
+
+    /**
+     * Answers a byte buffer, whose position and limit delimit the given
+     * range of this octet string. For heap-based instances, the buffer
+     * may be writable, so it must never escape to client code.
+     */
+
+    ByteBuffer view(int start, int end) {
+        if (data != null) return ByteBuffer.wrap(data, offset + start, end - start);
+        else if (buffer != null) return buffer.duplicate().limit(offset + end).position(offset + start);
+        else return flat().view(start, end);
+    }
+
+    /**
+     * Like {@link #view(int, int)}, but answers the range as sequence of
+     * buffers, which avoids flattening ropes.
+     */
+
+    ByteBuffer[] segments(int start, int end) {
+        if (rope == null) return new ByteBuffer[] { view(start, end) };
+        else return rope.segments(start, end);
+    }
+
+    /**
+     * Writes the contents of this octet string to the given channel. Ropes
+     * are sent using a single gathering write, if the channel supports that.
+     * The channel should be in blocking mode.
+     *
+     * @param channel   destination channel
+     *
+     * @throws IOException  if writing fails
+     */
+
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        final ByteBuffer[] segments = segments(0, length);
+        for (int p = 0; p < segments.length; ++p) segments[p] = segments[p].asReadOnlyBuffer();
+        OctetStringSupport.writeFully(channel, segments, length);
+    }
+
+    /**
+     * Writes the contents of this octet string to the given stream. Heap
+     * storage is passed to the stream directly; off-heap storage is copied
+     * through a small intermediate buffer.
+     *
+     * @param stream    destination stream
+     *
+     * @throws IOException  if writing fails
+     */
+
+    public void writeTo(OutputStream stream) throws IOException {
+        if (data != null) stream.write(data, offset, length);
+        else {
+            final byte[] chunk = new byte[Math.min(length, 8192)];
+            for (ByteBuffer src: segments(0, length)) {
+                if (src.hasArray()) stream.write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+                else {
+                    while (src.hasRemaining()) {
+                        final int n = Math.min(chunk.length, src.remaining());
+                        src.get(chunk, 0, n);
+                        stream.write(chunk, 0, n);
+                    }
+                }
+            }
+        }
     }
 
     public ByteBuffer toByteBuffer() {
         return toByteBuffer(true);
     }
 
+    /**
+     * Answers an input stream, which reads the contents of this octet string
+     * directly from its backing storage. The stream supports marks.
+     *
+     * @return  a new input stream
+     */
+
+    public InputStream asInputStream() {
+        return new OctetInputStream(this);
+    }
+
+    private static final class OctetInputStream extends InputStream {
+
+        private final OctetString source;
+        private int position;
+        private int mark;
+
+        OctetInputStream(OctetString source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() {
+            return position < source.length? 0xff & source.rawAt(position++) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) return 0;
+            else if (position >= source.length) return -1;
+            else {
+                final int n = Math.min(len, source.length - position);
+                source.getBytes(position, position + n, b, off);
+                position += n;
+                return n;
+            }
+        }
+
+        @Override
+        public long skip(long n) {
+            final int k = (int) Math.max(0, Math.min(n, source.length - position));
+            position += k;
+            return k;
+        }
+
+        @Override
+        public int available() {
+            return source.length - position;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public void mark(int limit) {
+            mark = position;
+        }
+
+        @Override
+        public void reset() {
+            position = mark;
+        }
+
+        @Override
+        public long transferTo(OutputStream out) throws IOException {
+            final int n = source.length - position;
+            source.substring(position).writeTo(out);
+            position = source.length;
+            return n;
+        }
+    }
+
+    /**
+     * Decodes the contents of this octet string as UTF-8. Malformed input
+     * is replaced by U+FFFD.
+     *
+     * @return  the decoded string
+     */
+
+    public String toUtf8String() {
+        if (data != null) return new String(data, offset, length, StandardCharsets.UTF_8);
+        else return new String(toByteArray(), StandardCharsets.UTF_8);
+    }
+
     @Override
     public String toString() {
-        return Base64.getUrlEncoder().encodeToString(data);
+        return Base64.getUrlEncoder().encodeToString(data != null && offset == 0 && length == data.length? data : toByteArray());
+    }
+
+    /**
+     * Answers the contents of this octet string as string of lower-case
+     * hexadecimal digits, two per octet.
+     *
+     * @return  the hex representation of this octet string
+     */
+
+    public String toHex() {
+        final byte[] chars = new byte[length << 1];
+        if (data != null) OctetStringSupport.encodeHex(data, offset, offset + length, chars, 0);
+        else {
+            final byte[] chunk = new byte[Math.min(length, 4096)];
+            for (int p = 0; p < length; p += chunk.length) {
+                final int n = Math.min(chunk.length, length - p);
+                getBytes(p, p + n, chunk, 0);
+                OctetStringSupport.encodeHex(chunk, 0, n, chars, p << 1);
+            }
+        }
+        return new String(chars, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Appends the hex representation of this octet string (as produced by
+     * {@link #toHex()}) to the given appendable, without creating the string
+     * first.
+     *
+     * @param out   destination
+     * @param <A>   type of the destination
+     *
+     * @return  {@code out}
+     *
+     * @throws IOException  if appending to {@code out} fails
+     */
+
+    public <A extends Appendable> A appendHexTo(A out) throws IOException {
+        final int chunkSize = Math.min(length, 1024);
+        final char[] chars = new char[chunkSize << 1];
+        final byte[] chunk = data != null? data : new byte[chunkSize];
+        for (int p = 0; p < length; p += chunkSize) {
+            final int n = Math.min(chunkSize, length - p);
+            if (data != null) OctetStringSupport.encodeHex(data, offset + p, offset + p + n, chars, 0);
+            else {
+                getBytes(p, p + n, chunk, 0);
+                OctetStringSupport.encodeHex(chunk, 0, n, chars, 0);
+            }
+            appendChars(out, chars, n << 1);
+        }
+        return out;
+    }
+
+    /**
+     * Writes the URL-safe Base64 representation of this octet string to the
+     * given stream. The output is identical to the (ASCII encoded) result of
+     * {@link #toString()}, but is produced in small chunks without building
+     * the full string in memory. The stream is neither flushed nor closed.
+     *
+     * @param out   destination stream
+     *
+     * @throws IOException  if writing fails
+     */
+
+    public void writeBase64To(OutputStream out) throws IOException {
+        final Base64.Encoder encoder = Base64.getUrlEncoder();
+        final byte[] chunk = new byte[Math.min(length, BASE64_CHUNK)];
+        final byte[] encoded = new byte[4 * ((chunk.length + 2) / 3)];
+        for (int p = 0; p < length; p += chunk.length) {
+            final int n = Math.min(chunk.length, length - p);
+            getBytes(p, p + n, chunk, 0);
+            final int m = encoder.encode(n == chunk.length? chunk : Arrays.copyOf(chunk, n), encoded);
+            out.write(encoded, 0, m);
+        }
+    }
+
+    public <A extends Appendable> A appendBase64To(A out) throws IOException {
+        final Base64.Encoder encoder = Base64.getUrlEncoder();
+        final byte[] chunk = new byte[Math.min(length, BASE64_CHUNK)];
+        final byte[] encoded = new byte[4 * ((chunk.length + 2) / 3)];
+        final char[] chars = new char[encoded.length];
+        for (int p = 0; p < length; p += chunk.length) {
+            final int n = Math.min(chunk.length, length - p);
+            getBytes(p, p + n, chunk, 0);
+            final int m = encoder.encode(n == chunk.length? chunk : Arrays.copyOf(chunk, n), encoded);
+            for (int k = 0; k < m; ++k) chars[k] = (char) encoded[k];
+            appendChars(out, chars, m);
+        }
+        return out;
+    }
+
+    // Must be a multiple of 3, so that no padding is produced before the final chunk
+    private static final int BASE64_CHUNK = 3 * 1024;
+    private static final int UTF8_BLOCK = 1024;
+
+    private static void appendChars(Appendable out, char[] chars, int count) throws IOException {
+        if (out instanceof StringBuilder) ((StringBuilder) out).append(chars, 0, count);
+        else if (out instanceof Writer) ((Writer) out).write(chars, 0, count);
+        else out.append(CharBuffer.wrap(chars, 0, count));
     }
 
+    /**
+     * Answers an iterator over the octets of this octet string. Like
+     * {@link #octetAt(int)}, the iterator produces unsigned values in the
+     * range [0, 255].
+     */
+
     public PrimitiveIterator.OfInt iterator() {
+        if (rope != null) return flat().iterator();
         return new PrimitiveIterator.OfInt() {
-            private int ptr = 0;
+            private int ptr = offset;
+            private final int end = offset + length;
             @Override
             public int nextInt() {
-                if (ptr >= data.length) throw new NoSuchElementException();
-                return data[ptr++];
+                if (ptr >= end) throw new NoSuchElementException();
+                return 0xff & (data != null? data[ptr++] : buffer.get(ptr++));
             }
             @Override
             public boolean hasNext() {
-                return ptr < data.length;
+                return ptr < end;
             }
         };
     }
 
+    /**
+     * Answers a spliterator over the (unsigned) octets of this octet string.
+     * The spliterator splits evenly, and reports the characteristics
+     * {@code ORDERED}, {@code SIZED}, {@code SUBSIZED}, {@code IMMUTABLE}
+     * and {@code NONNULL}.
+     */
+
+    @Override
+    public Spliterator.OfInt spliterator() {
+        if (rope != null) return flat().spliterator();
+        else return new OctetSpliterator(data, buffer, offset, offset + length);
+    }
+
+    /**
+     * Answers a stream of the (unsigned) octets of this octet string.
+     *
+     * @return  a sequential stream, which may be turned into a parallel one
+     */
+
+    public IntStream octets() {
+        return StreamSupport.intStream(spliterator(), false);
+    }
+
+    /**
+     * Calls {@code action} with each (unsigned) octet in order, without
+     * boxing them.
+     *
+     * @param action    action to perform for each octet
+     */
+
+    public void forEachOctet(IntConsumer action) {
+        if (data != null) for (int p = offset, e = offset + length; p < e; ++p) action.accept(0xff & data[p]);
+        else {
+            for (ByteBuffer segment: segments(0, length)) {
+                if (segment.hasArray()) {
+                    final byte[] array = segment.array();
+                    final int start = segment.arrayOffset() + segment.position();
+                    for (int p = start, e = start + segment.remaining(); p < e; ++p) action.accept(0xff & array[p]);
+                } else {
+                    for (int p = segment.position(), e = segment.limit(); p < e; ++p) action.accept(0xff & segment.get(p));
+                }
+            }
+        }
+    }
+
+    private static final class OctetSpliterator implements Spliterator.OfInt {
+
+        private final byte[] data;
+        private final ByteBuffer buffer;
+        private int index;
+        private final int fence;
+
+        OctetSpliterator(byte[] data, ByteBuffer buffer, int index, int fence) {
+            this.data = data;
+            this.buffer = buffer;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public OfInt trySplit() {
+            final int start = index;
+            final int mid = (start + fence) >>> 1;
+            if (mid <= start) return null;
+            else {
+                index = mid;
+                return new OctetSpliterator(data, buffer, start, mid);
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (index >= fence) return false;
+            else {
+                final int p = index++;
+                action.accept(0xff & (data != null? data[p] : buffer.get(p)));
+                return true;
+            }
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            final int start = index;
+            final int end = fence;
+            index = end;
+            if (data != null) for (int p = start; p < end; ++p) action.accept(0xff & data[p]);
+            else for (int p = start; p < end; ++p) action.accept(0xff & buffer.get(p));
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+
+    // endregion
+
+    // region Interning
+
+    /**
+     * Answers the canonical instance equal to this octet string from the
+     * {@linkplain OctetStringInterner#shared() shared interner}.
+     *
+     * @return  the canonical instance
+     */
+
+    public OctetString intern() {
+        return OctetStringInterner.shared().intern(this);
+    }
+
+    // endregion
+
+    // region Internal Access
+
+    /**
+     * Answers an octet string backed by the given array range without
+     * copying it. The caller must never modify that range afterwards.
+     */
+
+    static OctetString share(byte[] array, int offset, int length) {
+        return length == 0? EMPTY : new OctetString(array, null, offset, length);
+    }
+
+    /**
+     * Answers the backing array of this octet string, or {@code null},
+     * if the contents is stored off-heap. Indices into the result must
+     * be obtained via {@link #position(int, int)}.
+     */
+
+    byte[] array() {
+        return rope != null? flat().data : data;
+    }
+
+    /**
+     * Answers the backing byte buffer of this octet string, or {@code null},
+     * if the contents is stored on the heap. Indices into the result must
+     * be obtained via {@link #position(int, int)}.
+     */
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    private byte rawAt(int index) {
+        if (data != null) return data[offset + index];
+        else if (buffer != null) return buffer.get(offset + index);
+        else return rope.octetAt(index);
+    }
+
+    /**
+     * Answers a heap-based octet string with the same contents as this one.
+     * For ropes, the flattened copy is computed once, and then cached.
+     */
+
+    private OctetString flat() {
+        if (rope == null) return this;
+        else {
+            final OctetString cached = rope.flat;
+            if (cached != null) return cached;
+            else {
+                final byte[] copy = new byte[length];
+                getBytes(0, length, copy, 0);
+                return rope.flat = new OctetString(copy);
+            }
+        }
+    }
+
+    /**
+     * Validates, that the range of {@code width} octets starting at {@code index}
+     * lies within this octet string, and answers the position of its first
+     * octet in the backing storage.
+     */
+
+    int position(int index, int width) {
+        Objects.checkFromIndexSize(index, width, length);
+        return offset + index;
+    }
+
+    // endregion
+
+    // region Bitwise Operations
+
+    /**
+     * Answers the bitwise exclusive or of this octet string and {@code other},
+     * which must have the same length. Processes eight octets at a time.
+     *
+     * @param other     second operand
+     *
+     * @return  the result of the operation
+     *
+     * @throws IllegalArgumentException if the lengths differ
+     */
+
+    public OctetString xor(OctetString other) {
+        return bitwise(other, OctetStringSupport.XOR);
+    }
+
+    public OctetString and(OctetString other) {
+        return bitwise(other, OctetStringSupport.AND);
+    }
+
+    public OctetString or(OctetString other) {
+        return bitwise(other, OctetStringSupport.OR);
+    }
+
+    public OctetString not() {
+        return bitwise(this, OctetStringSupport.NOT);
+    }
+
+    /**
+     * Like {@link #xor(OctetString)}, but appends the result to the given
+     * builder instead of creating a new octet string.
+     *
+     * @param other     second operand
+     * @param out       builder to append the result to
+     *
+     * @return  {@code out}
+     */
+
+    public Builder xor(OctetString other, Builder out) {
+        return bitwise(other, OctetStringSupport.XOR, out);
+    }
+
+    public Builder and(OctetString other, Builder out) {
+        return bitwise(other, OctetStringSupport.AND, out);
+    }
+
+    public Builder or(OctetString other, Builder out) {
+        return bitwise(other, OctetStringSupport.OR, out);
+    }
+
+    public Builder not(Builder out) {
+        return bitwise(this, OctetStringSupport.NOT, out);
+    }
+
+    /**
+     * Answers the number of bits set in this octet string.
+     *
+     * @return  the population count
+     */
+
+    public int bitCount() {
+        if (data != null) return OctetStringSupport.bitCount(data, offset, offset + length);
+        final OctetString s = flat();
+        int count = 0;
+        int p = 0;
+        for (; p + 8 <= length; p += 8) count += Long.bitCount(s.wordAt(p));
+        for (; p < length; ++p) count += Integer.bitCount(0xff & s.rawAt(p));
+        return count;
+    }
+
+    /**
+     * Answers the number of zero bits preceding the first bit set, counting
+     * from the most significant bit of the first octet. If no bit is set at
+     * all, the result is {@code 8 * length()}.
+     *
+     * @return  the number of leading zero bits
+     */
+
+    public int leadingZeroBits() {
+        final OctetString s = flat();
+        int p = 0;
+        for (; p + 8 <= length; p += 8) {
+            final long word = s.wordAt(p);
+            if (word != 0) return 8 * p + Long.numberOfLeadingZeros(word);
+        }
+        for (; p < length; ++p) {
+            final int octet = 0xff & s.rawAt(p);
+            if (octet != 0) return 8 * p + Integer.numberOfLeadingZeros(octet) - 24;
+        }
+        return 8 * length;
+    }
+
+    /**
+     * Compares the XOR distances of {@code a} and {@code b} from this octet
+     * string, as used by Kademlia-style routing tables. The result is
+     * negative, if {@code a} is closer to this octet string than {@code b},
+     * positive, if it is farther away, and 0, if both are equal. All three
+     * octet strings must have the same length. Nothing is allocated, unless
+     * one of the operands is a rope, which gets flattened.
+     *
+     * @param a     first candidate
+     * @param b     second candidate
+     *
+     * @return  the result of comparing {@code this ^ a} with {@code this ^ b}
+     *
+     * @throws IllegalArgumentException if the lengths differ
+     */
+
+    public int compareDistance(OctetString a, OctetString b) {
+        checkSameLength(a);
+        checkSameLength(b);
+        if (data != null && a.data != null && b.data != null) return OctetStringSupport.compareDistance(data, offset, a.data, a.offset, b.data, b.offset, length);
+        final OctetString t = flat();
+        final OctetString l = a.flat();
+        final OctetString r = b.flat();
+        int p = 0;
+        for (; p + 8 <= length; p += 8) {
+            final long tw = t.wordAt(p);
+            final long dl = tw ^ l.wordAt(p);
+            final long dr = tw ^ r.wordAt(p);
+            if (dl != dr) return Long.compareUnsigned(dl, dr);
+        }
+        for (; p < length; ++p) {
+            final int to = t.rawAt(p);
+            final int dl = 0xff & (to ^ l.rawAt(p));
+            final int dr = 0xff & (to ^ r.rawAt(p));
+            if (dl != dr) return Integer.compare(dl, dr);
+        }
+        return 0;
+    }
+
+    private OctetString bitwise(OctetString other, int op) {
+        checkSameLength(other);
+        if (length == 0) return EMPTY;
+        else {
+            final byte[] result = new byte[length];
+            bitwise(other, op, result, 0);
+            return new OctetString(result);
+        }
+    }
+
+    private Builder bitwise(OctetString other, int op, Builder out) {
+        checkSameLength(other);
+        final int p = out.claim(length);
+        bitwise(other, op, out.storage(), p);
+        return out;
+    }
+
+    private void bitwise(OctetString other, int op, byte[] dst, int dpos) {
+        final OctetString l = flat();
+        final OctetString r = other.flat();
+        if (l.data != null && r.data != null) {
+            OctetStringSupport.bitwise(op, l.data, l.offset, r.data, r.offset, dst, dpos, length);
+            return;
+        }
+        int p = 0;
+        for (; p + 8 <= length; p += 8) {
+            OctetStringSupport.BE_LONG_ARRAY.set(dst, dpos + p, OctetStringSupport.apply(op, l.wordAt(p), r.wordAt(p)));
+        }
+        for (; p < length; ++p) dst[dpos + p] = (byte) OctetStringSupport.apply(op, l.rawAt(p), r.rawAt(p));
+    }
+
+    private void checkSameLength(OctetString other) {
+        if (other.length != length) throw new IllegalArgumentException("length mismatch: " + length + " vs. " + other.length);
+    }
+
+    /**
+     * Reads the eight octets starting at {@code index} as big endian word.
+     * Must not be called on ropes.
+     */
+
+    private long wordAt(int index) {
+        if (data != null) return (long) OctetStringSupport.BE_LONG_ARRAY.get(data, offset + index);
+        else return (long) OctetStringSupport.BE_LONG_BUFFER.get(buffer, offset + index);
+    }
+
     // endregion
 
     // region Hashing and Comparing
 
     @Override
     public int compareTo(OctetString o) {
-        final byte[] lb = data;
-        final byte[] rb = o.data;
-        final int llen = lb.length;
-        final int rlen = rb.length;
-        final int mlen = Math.min(llen, rlen);
-        for (int p = 0; p < mlen; ++p) {
-            final int le = 0xff & lb[p];
-            final int re = 0xff & rb[p];
-            final int diff = le - re;
-            if (diff != 0) return diff;
+        if (o.data != null) return compareTo(o.data, o.offset, o.offset + o.length);
+        else if (data != null) return -o.compareTo(data, offset, offset + length);
+        else return OctetStringSupport.compare(segments(0, length), o.segments(0, o.length));
+    }
+
+    /**
+     * Compares this octet string with the range {@code [from, to)} of the
+     * given array, using the same (unsigned, lexicographic) ordering as
+     * {@link #compareTo(OctetString)}. Unlike wrapping the array range into
+     * an octet string first, this neither copies nor allocates anything.
+     *
+     * @param a         array to compare against
+     * @param from      start of the range in {@code a} (inclusive)
+     * @param to        end of the range in {@code a} (exclusive)
+     *
+     * @return  a negative number, 0, or a positive number, if this octet
+     *          string orders before, equal to, or after the array range
+     *
+     * @throws IndexOutOfBoundsException if the range is not within {@code a}
+     */
+
+    public int compareTo(byte[] a, int from, int to) {
+        Objects.checkFromToIndex(from, to, a.length);
+        if (data != null) return compare(data, offset, offset + length, a, from, to);
+        final int alen = to - from;
+        final int p = mismatch(0, a, from, Math.min(length, alen));
+        if (p < 0) return Integer.compare(length, alen);
+        else return (0xff & rawAt(p)) - (0xff & a[from + p]);
+    }
+
+    /**
+     * Compares two array ranges using the ordering of {@link #compareTo(OctetString)},
+     * i.e., lexicographically by unsigned octet values.
+     *
+     * @return  a negative number, 0, or a positive number, if the first range
+     *          orders before, equal to, or after the second one
+     *
+     * @throws IndexOutOfBoundsException if either range is not within its array
+     */
+
+    public static int compare(byte[] a, int aFrom, int aTo, byte[] b, int bFrom, int bTo) {
+        Objects.checkFromToIndex(aFrom, aTo, a.length);
+        Objects.checkFromToIndex(bFrom, bTo, b.length);
+        final int p = Arrays.mismatch(a, aFrom, aTo, b, bFrom, bTo);
+        final int alen = aTo - aFrom;
+        final int blen = bTo - bFrom;
+        if (p < 0) return 0;
+        else if (p == alen || p == blen) return Integer.compare(alen, blen);
+        else return (0xff & a[aFrom + p]) - (0xff & b[bFrom + p]);
+    }
+
+    /**
+     * Tests, whether the remaining contents of the given buffer (i.e., the
+     * octets between its position and limit) equals the contents of this
+     * octet string. The buffer's position is not changed.
+     *
+     * @param buf   buffer to compare against
+     *
+     * @return  true, if the contents is equal, and false otherwise
+     */
+
+    public boolean contentEquals(ByteBuffer buf) {
+        if (buf.remaining() != length) return false;
+        else if (buf.hasArray()) return mismatch(0, buf.array(), buf.arrayOffset() + buf.position(), length) < 0;
+        else return mismatch(0, buf, buf.position(), length) < 0;
+    }
+
+    public boolean contentEquals(byte[] a, int from, int to) {
+        Objects.checkFromToIndex(from, to, a.length);
+        return to - from == length && mismatch(0, a, from, length) < 0;
+    }
+
+    /**
+     * Answers the index of the first octet in {@code [start, start + len)},
+     * which differs from the corresponding one in {@code other} starting at
+     * {@code ostart}, relative to {@code start}, or -1, if there is none.
+     */
+
+    private int mismatch(int start, byte[] other, int ostart, int len) {
+        if (data != null) return Arrays.mismatch(data, offset + start, offset + start + len, other, ostart, ostart + len);
+        else if (buffer != null) return OctetStringSupport.mismatch(buffer, offset + start, other, ostart, len);
+        else {
+            for (int p = rope.partAt(start), done = 0; done < len; ++p) {
+                final OctetString part = rope.parts[p];
+                final int local = start + done - rope.startOf(p);
+                final int n = Math.min(len - done, part.length - local);
+                final int m = part.mismatch(local, other, ostart + done, n);
+                if (m >= 0) return done + m;
+                done += n;
+            }
+            return -1;
+        }
+    }
+
+    private int mismatch(int start, ByteBuffer other, int ostart, int len) {
+        if (data != null) return OctetStringSupport.mismatch(other, ostart, data, offset + start, len);
+        else if (buffer != null) return OctetStringSupport.mismatch(buffer, offset + start, other, ostart, len);
+        else {
+            for (int p = rope.partAt(start), done = 0; done < len; ++p) {
+                final OctetString part = rope.parts[p];
+                final int local = start + done - rope.startOf(p);
+                final int n = Math.min(len - done, part.length - local);
+                final int m = part.mismatch(local, other, ostart + done, n);
+                if (m >= 0) return done + m;
+                done += n;
+            }
+            return -1;
         }
-        return Integer.compare(llen, rlen);
     }
 
     @Override
     public boolean equals(Object o) {
         if (o == this) return true;
         else if (!(o instanceof OctetString)) return false;
-        else return Arrays.equals(data, ((OctetString) o).data);
+        else {
+            final OctetString s = (OctetString) o;
+            if (length != s.length) return false;
+            final int h1 = hash;
+            final int h2 = s.hash;
+            return (h1 == 0 || h2 == 0 || h1 == h2) && regionMatches(0, s);
+        }
     }
 
     @Override
@@ -201,12 +1477,68 @@ public final class OctetString implements Serializable, Comparable<OctetString>,
         final int h = hash;
         if (h != 0) return h;
         else {
-            final int h1 = Arrays.hashCode(data);
+            int h1 = 1;
+            if (data != null) for (int p = offset, e = offset + length; p < e; ++p) h1 = 31 * h1 + data[p];
+            else {
+                for (ByteBuffer segment: segments(0, length)) {
+                    for (int p = segment.position(), e = segment.limit(); p < e; ++p) h1 = 31 * h1 + segment.get(p);
+                }
+            }
             final int h2 = h1 == 0? 1 : h1;
             return hash = h2;
         }
     }
 
+    /**
+     * Answers a 64-bit hash of the contents of this octet string computed
+     * using the xxHash64 algorithm. Unlike {@link #hashCode()}, the value is
+     * well distributed over all bits, making it suitable for sharding and
+     * open-addressing hash tables. It is not a cryptographic hash.
+     *
+     * @param seed  seed value
+     *
+     * @return  the hash value
+     */
+
+    public long hash64(long seed) {
+        if (data != null) return XxHash64.hash(data, offset, length, seed);
+        else if (buffer != null) return XxHash64.hash(buffer, offset, length, seed);
+        else return flat().hash64(seed);
+    }
+
+    public long hash64() {
+        return hash64(0);
+    }
+
+    /**
+     * Feeds the contents of this octet string into the given checksum. The
+     * backing storage is passed to the checksum directly, without copying.
+     *
+     * @param checksum  checksum to update
+     * @param <C>       type of the checksum
+     *
+     * @return  {@code checksum}
+     */
+
+    public <C extends Checksum> C update(C checksum) {
+        if (data != null) checksum.update(data, offset, length);
+        else {
+            for (ByteBuffer segment: segments(0, length)) {
+                if (segment.hasArray()) checksum.update(segment.array(), segment.arrayOffset() + segment.position(), segment.remaining());
+                else checksum.update(segment);
+            }
+        }
+        return checksum;
+    }
+
+    public long crc32c() {
+        return update(new CRC32C()).getValue();
+    }
+
+    public long adler32() {
+        return update(new Adler32()).getValue();
+    }
+
     // endregion
 
     // region Serialization
@@ -215,9 +1547,10 @@ public final class OctetString implements Serializable, Comparable<OctetString>,
 
         private static final long serialVersionUID = 1L;
         private byte[] data;
+        private transient OctetString source;
 
         Proxy(OctetString s) {
-            data = s.data;
+            source = s;
         }
 
         private Object readResolve() {
@@ -225,8 +1558,8 @@ public final class OctetString implements Serializable, Comparable<OctetString>,
         }
 
         private void writeObject(ObjectOutputStream stream) throws IOException {
-            stream.writeInt(data.length);
-            stream.write(data);
+            stream.writeInt(source.length);
+            source.writeTo(stream);
         }
 
         private void readObject(ObjectInputStream stream) throws IOException {
@@ -246,41 +1579,543 @@ public final class OctetString implements Serializable, Comparable<OctetString>,
 
     // endregion
 
+    // region Ropes
+
+    private static final class Rope {
+
+        final OctetString[] parts;
+        final int[] ends;
+        volatile OctetString flat;
+
+        Rope(OctetString[] parts, int[] ends) {
+            this.parts = parts;
+            this.ends = ends;
+        }
+
+        int length() {
+            return ends[ends.length - 1];
+        }
+
+        int partAt(int index) {
+            final int p = Arrays.binarySearch(ends, index);
+            return p < 0? -p - 1 : p + 1;
+        }
+
+        int startOf(int part) {
+            return part == 0? 0 : ends[part - 1];
+        }
+
+        byte octetAt(int index) {
+            final int p = partAt(index);
+            return parts[p].rawAt(index - startOf(p));
+        }
+
+        OctetString slice(int start, int end) {
+            final int first = partAt(start);
+            final int last = partAt(end - 1);
+            if (first == last) return parts[first].substring(start - startOf(first), end - startOf(first));
+            else {
+                final OctetString[] pieces = new OctetString[last - first + 1];
+                pieces[0] = parts[first].substring(start - startOf(first));
+                for (int p = first + 1; p < last; ++p) pieces[p - first] = parts[p];
+                pieces[pieces.length - 1] = parts[last].substring(0, end - startOf(last));
+                return concat(pieces);
+            }
+        }
+
+        ByteBuffer[] segments(int start, int end) {
+            if (start == end) return new ByteBuffer[] { ByteBuffer.allocate(0) };
+            final int first = partAt(start);
+            final int last = partAt(end - 1);
+            final ByteBuffer[] result = new ByteBuffer[last - first + 1];
+            for (int p = first; p <= last; ++p) {
+                final int base = startOf(p);
+                final OctetString part = parts[p];
+                result[p - first] = part.view(Math.max(start - base, 0), Math.min(end - base, part.length));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Collects the parts of a rope, and assembles them once. Appending a part
+     * takes amortized constant time (or time proportional to the number of
+     * its parts, if it is itself a rope), and never copies any octets. Rope
+     * builders are not thread-safe.
+     */
+
+    public static final class RopeBuilder {
+
+        private OctetString[] parts;
+        private int[] ends;
+        private int count;
+
+        RopeBuilder(int capacity) {
+            this.parts = new OctetString[Math.max(capacity, 1)];
+            this.ends = new int[parts.length];
+            this.count = 0;
+        }
+
+        public int length() {
+            return count == 0? 0 : ends[count - 1];
+        }
+
+        public RopeBuilder append(OctetString part) {
+            if (part.rope != null) {
+                for (OctetString leaf: part.rope.parts) add(leaf);
+            } else if (part.length > 0) {
+                add(part);
+            }
+            return this;
+        }
+
+        public RopeBuilder clear() {
+            Arrays.fill(parts, 0, count, null);
+            count = 0;
+            return this;
+        }
+
+        public OctetString toOctetString() {
+            if (count == 0) return EMPTY;
+            else if (count == 1) return parts[0];
+            else return new OctetString(new Rope(Arrays.copyOf(parts, count), Arrays.copyOf(ends, count)));
+        }
+
+        private void add(OctetString leaf) {
+            final int end = Math.addExact(length(), leaf.length);
+            if (count == parts.length) {
+                final int capacity = Math.max(count + 1, count + (count >>> 1));
+                parts = Arrays.copyOf(parts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+            }
+            parts[count] = leaf;
+            ends[count++] = end;
+        }
+    }
+
+    // endregion
+
+    // region Reader
+
+    /**
+     * Answers a new reader positioned at the start of this octet string.
+     *
+     * @return  a fresh reader
+     */
+
+    public Reader reader() {
+        return new Reader(this);
+    }
+
+    /**
+     * A cursor for sequential decoding of the contents of an octet string.
+     * Each read operation validates its range once, and advances the
+     * position only if it succeeds; reading past the end raises an
+     * {@link IndexOutOfBoundsException}. Readers are not thread-safe.
+     */
+
+    public static final class Reader {
+
+        private final OctetString source;
+        private int position;
+        private int mark;
+
+        Reader(OctetString source) {
+            this.source = source;
+            this.position = 0;
+            this.mark = 0;
+        }
+
+        public OctetString source() {
+            return source;
+        }
+
+        public int position() {
+            return position;
+        }
+
+        public int remaining() {
+            return source.length - position;
+        }
+
+        public boolean hasRemaining() {
+            return position < source.length;
+        }
+
+        public Reader mark() {
+            mark = position;
+            return this;
+        }
+
+        public Reader reset() {
+            position = mark;
+            return this;
+        }
+
+        public Reader skip(int count) {
+            Objects.checkFromIndexSize(position, count, source.length);
+            position += count;
+            return this;
+        }
+
+        public int readOctet() {
+            final int value = source.octetAt(position);
+            position += 1;
+            return value;
+        }
+
+        public byte readByte() {
+            return (byte) readOctet();
+        }
+
+        public short readShort(ByteOrder order) {
+            final short value = order.shortAt(source, position);
+            position += 2;
+            return value;
+        }
+
+        public int readInt(ByteOrder order) {
+            final int value = order.intAt(source, position);
+            position += 4;
+            return value;
+        }
+
+        public long readLong(ByteOrder order) {
+            final long value = order.longAt(source, position);
+            position += 8;
+            return value;
+        }
+
+        public float readFloat(ByteOrder order) {
+            return Float.intBitsToFloat(readInt(order));
+        }
+
+        public double readDouble(ByteOrder order) {
+            return Double.longBitsToDouble(readLong(order));
+        }
+
+        /**
+         * Reads the next {@code count} octets, answering them as a slice
+         * of the source octet string, i.e., without copying.
+         *
+         * @param count     number of octets to read
+         *
+         * @return  the octets read
+         */
+
+        public OctetString readSlice(int count) {
+            Objects.checkFromIndexSize(position, count, source.length);
+            final OctetString value = source.substring(position, position + count);
+            position += count;
+            return value;
+        }
+
+        public void readBytes(byte[] buffer, int start, int end) {
+            Objects.checkFromToIndex(start, end, buffer.length);
+            source.getBytes(position, position + (end - start), buffer, start);
+            position += end - start;
+        }
+
+        /**
+         * Reads an unsigned LEB128 encoded value of at most 32 bits as
+         * written by {@link Builder#appendVarInt(int)}. The number of octets
+         * consumed can be determined from the change in {@link #position()}.
+         * Raises an {@link IndexOutOfBoundsException}, if the encoding is
+         * truncated, and an {@link IllegalArgumentException}, if it is longer
+         * than five octets, or does not fit into 32 bits. The position is not
+         * changed in either case.
+         *
+         * @return  the decoded value
+         */
+
+        public int readVarInt() {
+            final int p = position;
+            if (p < source.length) {
+                final byte b = source.rawAt(p);
+                if (b >= 0) {
+                    position = p + 1;
+                    return b;
+                }
+            }
+            return (int) readVarSlow(32);
+        }
+
+        public long readVarLong() {
+            final int p = position;
+            if (p < source.length) {
+                final byte b = source.rawAt(p);
+                if (b >= 0) {
+                    position = p + 1;
+                    return b;
+                }
+            }
+            return readVarSlow(64);
+        }
+
+        public int readSignedVarInt() {
+            final int n = readVarInt();
+            return (n >>> 1) ^ -(n & 1);
+        }
+
+        public long readSignedVarLong() {
+            final long n = readVarLong();
+            return (n >>> 1) ^ -(n & 1);
+        }
+
+        private long readVarSlow(int bits) {
+            final int maxOctets = (bits + 6) / 7;
+            final int lastBits = bits - 7 * (maxOctets - 1);
+            long result = 0;
+            for (int n = 0, p = position; n < maxOctets; ++n, ++p) {
+                if (p >= source.length) throw new IndexOutOfBoundsException("truncated varint");
+                final byte b = source.rawAt(p);
+                result |= (long) (b & 0x7f) << (7 * n);
+                if (b >= 0) {
+                    if (n == maxOctets - 1 && (b >>> lastBits) != 0) throw new IllegalArgumentException("varint exceeds " + bits + " bits");
+                    position = p + 1;
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("malformed varint");
+        }
+    }
+
+    // endregion
+
     // region Builder
 
     public Builder toBuilder() {
-        return new Builder(length()).append(data, 0, data.length);
+        return new Builder(length).append(this);
     }
 
     public static Builder builder() {
         return new Builder(16);
     }
 
+    private static final int MAX_CACHED_BUILDER_CAPACITY = 1 << 16;
+    private static final ThreadLocal<Builder[]> cachedBuilder = ThreadLocal.withInitial(() -> new Builder[1]);
+
+    /**
+     * Runs {@code fn} with a builder borrowed from a per-thread cache, and
+     * answers the resulting contents. This avoids allocating (and growing)
+     * a new builder for every message encoded. The builder must not be used
+     * after {@code fn} returns. Nested calls are fine; they simply get a fresh
+     * builder. Builders, which have grown beyond 64 KiB are not retained.
+     *
+     * @param fn    function, that fills the builder
+     *
+     * @return  the octets appended by {@code fn}
+     */
+
+    public static OctetString build(Consumer<? super Builder> fn) {
+        final Builder[] slot = cachedBuilder.get();
+        final Builder builder;
+        if (slot[0] == null) builder = new Builder(256);
+        else {
+            builder = slot[0];
+            slot[0] = null;
+        }
+        try {
+            fn.accept(builder);
+            return builder.toOctetString();
+        } finally {
+            if (builder.chunkSize == 0 && builder.buffer.length <= MAX_CACHED_BUILDER_CAPACITY) {
+                builder.clear();
+                slot[0] = builder;
+            }
+        }
+    }
+
+    /**
+     * Answers a new builder, which stores its contents in a sequence of
+     * chunks of (at least) the given size instead of a single growing
+     * array. Such a builder never copies data when it runs out of space;
+     * it simply starts a new chunk. This is meant for very large payloads,
+     * which are best sent via {@link Builder#writeTo(WritableByteChannel)}
+     * rather than being assembled by {@link Builder#toOctetString()}.
+     *
+     * @param chunkSize     size of the individual chunks
+     *
+     * @return  a new, empty segmented builder
+     */
+
+    public static Builder segmentedBuilder(int chunkSize) {
+        if (chunkSize < 16) throw new IllegalArgumentException("chunk size too small: " + chunkSize);
+        return new Builder(chunkSize, chunkSize);
+    }
+
     public static final class Builder {
 
+        // In segmented mode, `buffer` is the current chunk and `length` its fill
+        // level; completed chunks are kept in `sealed`. Otherwise, `sealed` is
+        // always null, and `buffer` holds the entire contents.
+
         private byte[] buffer;
         private int length;
+        private final int chunkSize;
+        private ArrayList<ByteBuffer> sealed;
+        private int sealedLength;
 
         Builder(int capacity) {
-            buffer = new byte[Math.max(capacity, 16)];
-            length = 0;
+            this(capacity, 0);
+        }
+
+        private Builder(int capacity, int chunkSize) {
+            this.buffer = new byte[Math.max(capacity, 16)];
+            this.length = 0;
+            this.chunkSize = chunkSize;
+            this.sealed = null;
+            this.sealedLength = 0;
         }
 
         public String toText(Charset cs) {
-            return new String(buffer, 0, length, cs);
+            return sealed == null? new String(buffer, 0, length, cs) : new String(copyContents(), cs);
         }
 
         public Builder clear() {
             length = 0;
+            sealed = null;
+            sealedLength = 0;
             return this;
         }
 
         public OctetString toOctetString() {
-            return length == 0? empty() : new OctetString(Arrays.copyOf(buffer, length));
+            return length() == 0? empty() : new OctetString(copyContents());
+        }
+
+        /**
+         * Answers the contents of this builder as octet string, and clears the
+         * builder. If the internal buffer is (nearly) full, it is handed over to
+         * the result instead of being copied, and the builder starts over with a
+         * small new buffer (or a fresh chunk, if it is segmented). Otherwise, the contents is copied, and the builder
+         * keeps its buffer for reuse.
+         *
+         * @return  the contents of this builder prior to the call
+         */
+
+        public OctetString detach() {
+            final OctetString result;
+            if (length() == 0) result = empty();
+            else if (sealed == null && buffer.length - length <= buffer.length >>> 3) {
+                result = new OctetString(buffer, null, 0, length);
+                buffer = new byte[chunkSize != 0? chunkSize : 16];
+            } else {
+                result = new OctetString(copyContents());
+            }
+            clear();
+            return result;
+        }
+
+        /**
+         * Like {@link #detach()}, but answers the contents of a segmented builder
+         * as a rope of its chunks instead of copying them into a single array.
+         * Only the last chunk is copied, if it is mostly empty.
+         */
+
+        private OctetString detachChunks() {
+            if (sealed == null) return detach();
+            final RopeBuilder parts = new RopeBuilder(sealed.size() + 1);
+            for (ByteBuffer chunk: sealed) parts.append(new OctetString(chunk.array(), null, 0, chunk.remaining()));
+            if (buffer.length - length <= buffer.length >>> 3) {
+                parts.append(new OctetString(buffer, null, 0, length));
+                buffer = new byte[chunkSize];
+            } else {
+                parts.append(new OctetString(buffer, null, 0, length).compact());
+            }
+            clear();
+            return parts.toOctetString();
         }
 
         public int length() {
-            return length;
+            return sealedLength + length;
+        }
+
+        /**
+         * Writes the current contents of this builder to the given channel,
+         * using a single gathering write for all chunks, if the channel
+         * supports it. The channel should be in blocking mode. The contents of
+         * this builder is not affected.
+         *
+         * @param channel   destination channel
+         *
+         * @throws IOException  if writing fails
+         */
+
+        public void writeTo(WritableByteChannel channel) throws IOException {
+            OctetStringSupport.writeFully(channel, buffers(), length());
+        }
+
+        /**
+         * Answers the same value as {@link OctetString#hash64(long)} would
+         * for the current contents of this builder, without building an octet
+         * string first.
+         *
+         * @param seed  seed value
+         *
+         * @return  the hash value
+         */
+
+        public long hash64(long seed) {
+            if (sealed == null) return XxHash64.hash(buffer, 0, length, seed);
+            else {
+                final XxHash64 hasher = new XxHash64(seed);
+                for (ByteBuffer chunk: sealed) hasher.update(chunk.array(), 0, chunk.remaining());
+                hasher.update(buffer, 0, length);
+                return hasher.digest();
+            }
+        }
+
+        public long hash64() {
+            return hash64(0);
+        }
+
+        /**
+         * Feeds the current contents of this builder into the given checksum,
+         * segment by segment, and without copying.
+         *
+         * @param checksum  checksum to update
+         * @param <C>       type of the checksum
+         *
+         * @return  {@code checksum}
+         */
+
+        public <C extends Checksum> C update(C checksum) {
+            if (sealed != null) {
+                for (ByteBuffer chunk: sealed) checksum.update(chunk.array(), 0, chunk.remaining());
+            }
+            checksum.update(buffer, 0, length);
+            return checksum;
+        }
+
+        public long crc32c() {
+            return update(new CRC32C()).getValue();
+        }
+
+        public long adler32() {
+            return update(new Adler32()).getValue();
+        }
+
+        private ByteBuffer[] buffers() {
+            final int count = sealed == null? 0 : sealed.size();
+            final ByteBuffer[] result = new ByteBuffer[count + 1];
+            for (int p = 0; p < count; ++p) result[p] = sealed.get(p).asReadOnlyBuffer();
+            result[count] = ByteBuffer.wrap(buffer, 0, length).asReadOnlyBuffer();
+            return result;
+        }
+
+        private byte[] copyContents() {
+            if (sealed == null) return Arrays.copyOf(buffer, length);
+            else {
+                final byte[] result = new byte[length()];
+                int p = 0;
+                for (ByteBuffer chunk: sealed) {
+                    final int n = chunk.remaining();
+                    System.arraycopy(chunk.array(), 0, result, p, n);
+                    p += n;
+                }
+                System.arraycopy(buffer, 0, result, p, length);
+                return result;
+            }
         }
 
         public Builder append(int octet) {
@@ -314,6 +2149,227 @@ public final class OctetString implements Serializable, Comparable<OctetString>,
             return this;
         }
 
+        /**
+         * Appends the given value as unsigned LEB128 varint, i.e., in
+         * groups of 7 bits, least significant group first, with the high
+         * bit of each octet flagging, that more octets follow. The value
+         * is treated as unsigned, so negative numbers always take five
+         * octets; use {@link #appendSignedVarInt(int)} for those.
+         *
+         * @param value     value to encode
+         *
+         * @return  this builder
+         */
+
+        public Builder appendVarInt(int value) {
+            if ((value & ~0x7f) == 0) return append(value);
+            else return appendVarLong(value & 0xffffffffL);
+        }
+
+        public Builder appendVarLong(long value) {
+            if ((value & ~0x7fL) == 0) return append((int) value);
+            else {
+                ensureRoom(10);
+                final byte[] buf = buffer;
+                int p = length;
+                while ((value & ~0x7fL) != 0) {
+                    buf[p++] = (byte) (0x80 | (value & 0x7f));
+                    value >>>= 7;
+                }
+                buf[p++] = (byte) value;
+                length = p;
+                return this;
+            }
+        }
+
+        /**
+         * Appends the given value as ZigZag encoded varint, which maps
+         * signed numbers of small magnitude to short encodings.
+         *
+         * @param value     value to encode
+         *
+         * @return  this builder
+         */
+
+        public Builder appendSignedVarInt(int value) {
+            return appendVarInt((value << 1) ^ (value >> 31));
+        }
+
+        public Builder appendSignedVarLong(long value) {
+            return appendVarLong((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * Appends the octets represented by the given string of hexadecimal
+         * digits, two per octet. If the string is malformed, the builder is
+         * left unchanged.
+         *
+         * @param s     hex digits to decode
+         *
+         * @return  this builder
+         *
+         * @throws IllegalArgumentException if {@code s} has odd length or
+         *         contains characters other than hex digits
+         */
+
+        public Builder appendHex(CharSequence s) {
+            final int len = s.length();
+            if ((len & 1) != 0) throw new IllegalArgumentException("odd number of hex digits");
+            final int n = len >>> 1;
+            final int p = claim(n);
+            try {
+                OctetStringSupport.decodeHex(s, 0, len, buffer, p);
+            } catch (IllegalArgumentException exc) {
+                length -= n;
+                throw exc;
+            }
+            return this;
+        }
+
+        /**
+         * Appends the UTF-8 encoding of the given characters. Unpaired
+         * surrogates are encoded as {@code '?'}.
+         *
+         * @param s     characters to encode
+         *
+         * @return  this builder
+         */
+
+        public Builder appendUtf8(CharSequence s) {
+            return appendUtf8(s, 0, s.length());
+        }
+
+        /**
+         * Appends the UTF-8 encoding of {@code s[start..end)}, writing directly
+         * into this builder's buffer. Runs of ASCII characters are copied with
+         * a tight loop; everything else is encoded character by character.
+         * Unpaired surrogates are encoded as {@code '?'}.
+         *
+         * @param s         characters to encode
+         * @param start     index of the first character (inclusive)
+         * @param end       index of the last character (exclusive)
+         *
+         * @return  this builder
+         */
+
+        public Builder appendUtf8(CharSequence s, int start, int end) {
+            Objects.checkFromToIndex(start, end, s.length());
+            int p = start;
+            while (p < end) {
+                final int stop = p + Math.min(end - p, UTF8_BLOCK);
+                ensureRoom(stop - p);
+                final byte[] buf = buffer;
+                int q = length;
+                for (char c; p < stop && (c = s.charAt(p)) < 0x80; ++p) buf[q++] = (byte) c;
+                length = q;
+                if (p < stop) p = encodeUtf8(s, p, stop, end);
+            }
+            return this;
+        }
+
+        /**
+         * Encodes {@code s[start..stop)}, and answers the index of the next
+         * character to encode. This may be {@code stop + 1}, if the last
+         * character is the high half of a surrogate pair.
+         */
+
+        private int encodeUtf8(CharSequence s, int start, int stop, int end) {
+            // At most 3 octets per char; a surrogate pair takes 4 octets for 2 chars,
+            // but may extend one char beyond `stop`
+            ensureRoom(3 * (stop - start) + 1);
+            final byte[] buf = buffer;
+            int q = length;
+            int p = start;
+            while (p < stop) {
+                final char c = s.charAt(p++);
+                if (c < 0x80) buf[q++] = (byte) c;
+                else if (c < 0x800) {
+                    buf[q++] = (byte) (0xc0 | (c >>> 6));
+                    buf[q++] = (byte) (0x80 | (c & 0x3f));
+                } else if (!Character.isSurrogate(c)) {
+                    buf[q++] = (byte) (0xe0 | (c >>> 12));
+                    buf[q++] = (byte) (0x80 | ((c >>> 6) & 0x3f));
+                    buf[q++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && p < end && Character.isLowSurrogate(s.charAt(p))) {
+                    final int cp = Character.toCodePoint(c, s.charAt(p++));
+                    buf[q++] = (byte) (0xf0 | (cp >>> 18));
+                    buf[q++] = (byte) (0x80 | ((cp >>> 12) & 0x3f));
+                    buf[q++] = (byte) (0x80 | ((cp >>> 6) & 0x3f));
+                    buf[q++] = (byte) (0x80 | (cp & 0x3f));
+                } else {
+                    buf[q++] = '?';
+                }
+            }
+            length = q;
+            return p;
+        }
+
+        /**
+         * Decodes the URL-safe Base64 encoded data in {@code s[start..end)}
+         * and appends the result. If the data is malformed, an exception is
+         * raised, and the octets decoded so far remain in this builder.
+         *
+         * @param s         characters to decode
+         * @param start     start index (inclusive)
+         * @param end       end index (exclusive)
+         *
+         * @return  this builder
+         *
+         * @throws IllegalArgumentException if the data is not valid Base64
+         */
+
+        public Builder appendBase64(CharSequence s, int start, int end) {
+            Objects.checkFromToIndex(start, end, s.length());
+            if (chunkSize == 0) ensureRoom(3 * ((end - start) / 4) + 2);
+            final Base64.Decoder decoder = Base64.getUrlDecoder();
+            final byte[] chunk = new byte[Math.min(end - start, 4 * 1024)];
+            final byte[] decoded = new byte[3 * (chunk.length / 4) + 3];
+            for (int p = start; p < end; p += chunk.length) {
+                final int n = Math.min(chunk.length, end - p);
+                for (int k = 0; k < n; ++k) {
+                    final char c = s.charAt(p + k);
+                    if (c > 127) throw new IllegalArgumentException("illegal Base64 character at index " + (p + k));
+                    chunk[k] = (byte) c;
+                }
+                final int m = decoder.decode(n == chunk.length? chunk : Arrays.copyOf(chunk, n), decoded);
+                write(decoded, 0, m);
+            }
+            return this;
+        }
+
+        public Builder appendBase64(CharSequence s) {
+            return appendBase64(s, 0, s.length());
+        }
+
+        /**
+         * Reads URL-safe Base64 encoded data from the given stream until its
+         * end is reached, and appends the decoded octets. The stream is not
+         * closed. Since the size of the data is not known in advance, a
+         * non-segmented builder has to grow its buffer repeatedly; use a
+         * {@linkplain OctetString#segmentedBuilder(int) segmented} one (or
+         * {@link OctetString#readBase64(InputStream)}) for large payloads.
+         *
+         * @param in    stream to read from
+         *
+         * @return  this builder
+         *
+         * @throws IOException  if reading fails or the data is malformed
+         */
+
+        public Builder appendBase64(InputStream in) throws IOException {
+            readFully(Base64.getUrlDecoder().wrap(in));
+            return this;
+        }
+
+        private void readFully(InputStream in) throws IOException {
+            while (true) {
+                if (length == buffer.length) ensureRoom(1);
+                final int n = in.read(buffer, length, buffer.length - length);
+                if (n < 0) return;
+                length += n;
+            }
+        }
+
         public Builder append(OctetString buf) {
             return append(buf, 0, buf.length());
         }
@@ -324,11 +2380,11 @@ public final class OctetString implements Serializable, Comparable<OctetString>,
 
         public Builder append(OctetString buf, int start, int end) {
             if (start < 0 || end < start || buf.length() < end) throw new IndexOutOfBoundsException();
-            else {
-                final int len = end - start;
-                ensureRoom(len);
-                System.arraycopy(buf.data, start, buffer, length, len);
-                length += len;
+            else if (buf.data != null) {
+                write(buf.data, buf.offset + start, end - start);
+                return this;
+            } else {
+                for (ByteBuffer src: buf.segments(start, end)) append(src);
                 return this;
             }
         }
@@ -344,21 +2400,147 @@ public final class OctetString implements Serializable, Comparable<OctetString>,
         public Builder append(byte[] buf, int start, int end) {
             if (end < start || start < 0 || buf.length < end) throw new IndexOutOfBoundsException();
             else {
-                final int len = end - start;
+                write(buf, start, end - start);
+                return this;
+            }
+        }
+
+        /**
+         * Appends the remaining octets of the given buffer, advancing its
+         * position to its limit.
+         *
+         * @param src   buffer to append
+         *
+         * @return  this builder
+         */
+
+        public Builder append(ByteBuffer src) {
+            if (src.hasArray()) {
+                final int n = src.remaining();
+                write(src.array(), src.arrayOffset() + src.position(), n);
+                src.position(src.limit());
+            } else {
+                while (src.hasRemaining()) {
+                    if (length == buffer.length) ensureRoom(src.remaining());
+                    final int n = Math.min(src.remaining(), buffer.length - length);
+                    src.get(buffer, length, n);
+                    length += n;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Answers an output stream, which appends everything written to it
+         * to this builder. Closing the stream has no effect.
+         *
+         * @return  a stream view of this builder
+         */
+
+        public OutputStream asOutputStream() {
+            return new OutputStream() {
+                @Override
+                public void write(int b) {
+                    append(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    Objects.checkFromIndexSize(off, len, b.length);
+                    Builder.this.write(b, off, len);
+                }
+            };
+        }
+
+        /**
+         * Answers a channel, which appends everything written to it to this
+         * builder. Once closed, the channel rejects further writes, but the
+         * builder remains usable.
+         *
+         * @return  a channel view of this builder
+         */
+
+        public WritableByteChannel asChannel() {
+            return new WritableByteChannel() {
+                private boolean open = true;
+
+                @Override
+                public int write(ByteBuffer src) throws IOException {
+                    if (!open) throw new ClosedChannelException();
+                    final int n = src.remaining();
+                    append(src);
+                    return n;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return open;
+                }
+
+                @Override
+                public void close() {
+                    open = false;
+                }
+            };
+        }
+
+        private void write(byte[] src, int start, int len) {
+            if (chunkSize == 0 || len <= buffer.length - length) {
                 ensureRoom(len);
-                System.arraycopy(buf, start, buffer, length, len);
+                System.arraycopy(src, start, buffer, length, len);
                 length += len;
-                return this;
+            } else {
+                while (len > 0) {
+                    if (length == buffer.length) ensureRoom(len);
+                    final int n = Math.min(len, buffer.length - length);
+                    System.arraycopy(src, start, buffer, length, n);
+                    length += n;
+                    start += n;
+                    len -= n;
+                }
             }
         }
 
+        /**
+         * Reserves room for {@code count} octets at the end of this builder,
+         * answering the position of the first reserved octet in the array
+         * returned by {@link #storage()}. The caller must fill in all reserved
+         * octets.
+         */
+
+        int claim(int count) {
+            ensureRoom(count);
+            final int p = length;
+            length += count;
+            return p;
+        }
+
+        byte[] storage() {
+            return buffer;
+        }
+
         private void ensureRoom(int required) {
             if (length + required > buffer.length) {
-                final int missing = required + length - buffer.length;
-                final int defaultGrowth = buffer.length + (buffer.length >>> 1);
-                final int newLen = Math.max(defaultGrowth, buffer.length + missing);
-                buffer = Arrays.copyOf(buffer, newLen);
+                if (chunkSize != 0) startChunk(required);
+                else grow(required);
+            }
+        }
+
+        private void startChunk(int required) {
+            if (length > 0) {
+                if (sealed == null) sealed = new ArrayList<>();
+                sealedLength = Math.addExact(sealedLength, length);
+                sealed.add(ByteBuffer.wrap(buffer, 0, length));
             }
+            buffer = new byte[Math.max(chunkSize, required)];
+            length = 0;
+        }
+
+        private void grow(int required) {
+            final int missing = required + length - buffer.length;
+            final int defaultGrowth = buffer.length + (buffer.length >>> 1);
+            final int newLen = Math.max(defaultGrowth, buffer.length + missing);
+            buffer = Arrays.copyOf(buffer, newLen);
         }
     }
 
@@ -0,0 +1,356 @@
+package darts.lib.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+/**
+ * A codec for sequences of octet strings, where each record is preceded by
+ * its length. The length is encoded either as unsigned varint (as produced by
+ * {@link OctetString.Builder#appendVarInt(int)}) or as fixed-size 32-bit
+ * big endian integer.
+ *
+ * <p>Instances are immutable and can be shared freely. Writers and readers
+ * obtained from a codec buffer their I/O internally, and are not thread-safe.
+ */
+
+public final class OctetStringFraming {
+
+    public enum Prefix {
+        VARINT,
+        FIXED_32
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int COPY_THRESHOLD = 256;
+
+    private final Prefix prefix;
+    private final int maxRecordLength;
+    private final int bufferSize;
+
+    private OctetStringFraming(Prefix prefix, int maxRecordLength, int bufferSize) {
+        this.prefix = prefix;
+        this.maxRecordLength = maxRecordLength;
+        this.bufferSize = bufferSize;
+    }
+
+    public static OctetStringFraming varint() {
+        return new OctetStringFraming(Prefix.VARINT, Integer.MAX_VALUE, DEFAULT_BUFFER_SIZE);
+    }
+
+    public static OctetStringFraming fixed32() {
+        return new OctetStringFraming(Prefix.FIXED_32, Integer.MAX_VALUE, DEFAULT_BUFFER_SIZE);
+    }
+
+    public Prefix prefix() {
+        return prefix;
+    }
+
+    /**
+     * Answers a codec, whose readers reject records longer than the given
+     * limit. This protects readers against allocating huge arrays due to
+     * corrupted or malicious input.
+     *
+     * @param limit     maximum number of octets in a record
+     *
+     * @return  a codec with the given limit
+     */
+
+    public OctetStringFraming withMaxRecordLength(int limit) {
+        if (limit < 0) throw new IllegalArgumentException("negative limit: " + limit);
+        return new OctetStringFraming(prefix, limit, bufferSize);
+    }
+
+    public OctetStringFraming withBufferSize(int size) {
+        if (size < 16) throw new IllegalArgumentException("buffer size too small: " + size);
+        return new OctetStringFraming(prefix, maxRecordLength, size);
+    }
+
+    public Writer writer(OutputStream out) {
+        return new Writer(Objects.requireNonNull(out), null);
+    }
+
+    public Writer writer(WritableByteChannel channel) {
+        return new Writer(null, Objects.requireNonNull(channel));
+    }
+
+    public Reader reader(InputStream in) {
+        return new Reader(Objects.requireNonNull(in), null);
+    }
+
+    public Reader reader(ReadableByteChannel channel) {
+        return new Reader(null, Objects.requireNonNull(channel));
+    }
+
+    /**
+     * Answers a traversable over the records stored in the given file. Each
+     * traversal opens the file afresh, and closes it when done. I/O errors
+     * are reported as {@link UncheckedIOException}.
+     *
+     * @param file  file to read
+     *
+     * @return  a traversable over the records in {@code file}
+     */
+
+    public Traversable<OctetString> records(Path file) {
+        return new Traversable<OctetString>() {
+            @Override
+            public <M> M fold(M seed, BiFunction<? super M, ? super OctetString, ? extends M> fn) {
+                try (Reader reader = reader(FileChannel.open(file, StandardOpenOption.READ))) {
+                    M acc = seed;
+                    OctetString record;
+                    while ((record = reader.next()) != null) acc = fn.apply(acc, record);
+                    return acc;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    // region Writer
+
+    public final class Writer implements Closeable, Flushable {
+
+        private final OutputStream stream;
+        private final WritableByteChannel channel;
+        private final byte[] buffer;
+        private int length;
+
+        private Writer(OutputStream stream, WritableByteChannel channel) {
+            this.stream = stream;
+            this.channel = channel;
+            this.buffer = new byte[bufferSize];
+            this.length = 0;
+        }
+
+        /**
+         * Writes a single record. Records, which do not fit into the internal
+         * buffer, are written directly to the underlying sink after flushing
+         * the buffer.
+         *
+         * @param record    record to write
+         *
+         * @return  this writer
+         *
+         * @throws IOException  if writing fails
+         */
+
+        public Writer write(OctetString record) throws IOException {
+            final int len = record.length();
+            if (buffer.length - length < 5) drain();
+            writePrefix(len);
+            if (len <= buffer.length - length) {
+                record.getBytes(0, len, buffer, length);
+                length += len;
+            } else {
+                drain();
+                if (stream != null) record.writeTo(stream);
+                else record.writeTo(channel);
+            }
+            return this;
+        }
+
+        public Writer writeAll(Iterable<? extends OctetString> records) throws IOException {
+            for (OctetString record: records) write(record);
+            return this;
+        }
+
+        private void writePrefix(int len) {
+            final byte[] buf = buffer;
+            int p = length;
+            if (prefix == Prefix.FIXED_32) {
+                buf[p++] = (byte) (len >>> 24);
+                buf[p++] = (byte) (len >>> 16);
+                buf[p++] = (byte) (len >>> 8);
+                buf[p++] = (byte) len;
+            } else {
+                int value = len;
+                while ((value & ~0x7f) != 0) {
+                    buf[p++] = (byte) (0x80 | (value & 0x7f));
+                    value >>>= 7;
+                }
+                buf[p++] = (byte) value;
+            }
+            length = p;
+        }
+
+        private void drain() throws IOException {
+            if (length > 0) {
+                if (stream != null) stream.write(buffer, 0, length);
+                else {
+                    final ByteBuffer src = ByteBuffer.wrap(buffer, 0, length);
+                    while (src.hasRemaining()) channel.write(src);
+                }
+                length = 0;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain();
+            if (stream != null) stream.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                if (stream != null) stream.close();
+                else channel.close();
+            }
+        }
+    }
+
+    // endregion
+
+    // region Reader
+
+    /**
+     * Reads records from a stream or channel. Small records are copied out of
+     * the internal buffer, which is then reused. Larger records are handed out
+     * as slices of the buffer; a buffer, which has been shared that way, is
+     * replaced instead of being overwritten on the next refill. Records larger
+     * than the buffer are read into arrays of their own.
+     *
+     * <p>A reader is a cursor, which produces each record exactly once. Use
+     * {@link #records(Path)} in order to get a {@link Traversable}, which can
+     * be enumerated any number of times.
+     */
+
+    public final class Reader implements Closeable {
+
+        private final InputStream stream;
+        private final ReadableByteChannel channel;
+        private byte[] buffer;
+        private int position;
+        private int limit;
+        private boolean shared;
+        private boolean eof;
+
+        private Reader(InputStream stream, ReadableByteChannel channel) {
+            this.stream = stream;
+            this.channel = channel;
+            this.buffer = new byte[bufferSize];
+        }
+
+        /**
+         * Reads the next record.
+         *
+         * @return  the next record, or {@code null}, if the end of the input has
+         *          been reached
+         *
+         * @throws EOFException  if the input ends in the middle of a record
+         * @throws IOException  if reading fails, or the input is malformed
+         */
+
+        public OctetString next() throws IOException {
+            if (limit - position < 5 && fill(5) == 0) return null;
+            final int len = readPrefix();
+            if (len > maxRecordLength) throw new IOException("record of " + len + " octets exceeds limit of " + maxRecordLength);
+            else if (len == 0) return OctetString.empty();
+            else if (len > buffer.length) return readLarge(len);
+            else {
+                if (limit - position < len && fill(len) < len) throw new EOFException("truncated record");
+                final int start = position;
+                position += len;
+                if (len <= COPY_THRESHOLD) return OctetString.fromByteArray(buffer, start, start + len);
+                else {
+                    shared = true;
+                    return OctetString.share(buffer, start, len);
+                }
+            }
+        }
+
+        private int readPrefix() throws IOException {
+            final byte[] buf = buffer;
+            if (prefix == Prefix.FIXED_32) {
+                if (limit - position < 4) throw new EOFException("truncated frame header");
+                final int p = position;
+                final int len = (buf[p] << 24) | ((buf[p + 1] & 0xff) << 16) | ((buf[p + 2] & 0xff) << 8) | (buf[p + 3] & 0xff);
+                if (len < 0) throw new IOException("invalid record length: " + (len & 0xffffffffL));
+                position = p + 4;
+                return len;
+            } else {
+                final byte b0 = buf[position];
+                if (b0 >= 0) {
+                    position += 1;
+                    return b0;
+                } else {
+                    long result = 0;
+                    for (int n = 0, p = position; n < 5; ++n, ++p) {
+                        if (p >= limit) throw new EOFException("truncated frame header");
+                        final byte b = buf[p];
+                        result |= (long) (b & 0x7f) << (7 * n);
+                        if (b >= 0) {
+                            if (result > Integer.MAX_VALUE) throw new IOException("invalid record length: " + result);
+                            position = p + 1;
+                            return (int) result;
+                        }
+                    }
+                    throw new IOException("malformed frame header");
+                }
+            }
+        }
+
+        private OctetString readLarge(int len) throws IOException {
+            final byte[] data = new byte[len];
+            final int buffered = limit - position;
+            System.arraycopy(buffer, position, data, 0, buffered);
+            position = limit;
+            int filled = buffered;
+            while (filled < len) {
+                final int n = read(data, filled, len - filled);
+                if (n < 0) throw new EOFException("truncated record");
+                filled += n;
+            }
+            return OctetString.share(data, 0, len);
+        }
+
+        /**
+         * Makes sure, that at least {@code wanted} octets are available in the
+         * buffer, unless the input ends first. Answers the number of available
+         * octets.
+         */
+
+        private int fill(int wanted) throws IOException {
+            final int available = limit - position;
+            if (shared) {
+                final byte[] fresh = new byte[buffer.length];
+                System.arraycopy(buffer, position, fresh, 0, available);
+                buffer = fresh;
+                shared = false;
+            } else if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, available);
+            }
+            position = 0;
+            limit = available;
+            while (limit < wanted && !eof) {
+                final int n = read(buffer, limit, buffer.length - limit);
+                if (n < 0) eof = true;
+                else limit += n;
+            }
+            return limit;
+        }
+
+        private int read(byte[] dst, int start, int count) throws IOException {
+            if (stream != null) return stream.read(dst, start, count);
+            else return channel.read(ByteBuffer.wrap(dst, start, count));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (stream != null) stream.close();
+            else channel.close();
+        }
+    }
+
+    // endregion
+}
@@ -0,0 +1,221 @@
+package darts.lib.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of canonical {@link OctetString} instances. Interning an octet
+ * string answers a single shared instance for all equal octet strings,
+ * which allows applications holding many copies of the same identifiers
+ * to keep only one of them in memory.
+ *
+ * <p>The pool only references its entries weakly, so canonical instances,
+ * which are no longer used anywhere else, are eventually dropped. The table
+ * is split into independently locked stripes. Looking up an octet string,
+ * which is already present, does not acquire any lock.
+ */
+
+public final class OctetStringInterner {
+
+    private static final OctetStringInterner SHARED = new OctetStringInterner(64);
+
+    private final Stripe[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private OctetStringInterner(int stripeCount) {
+        final int n = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+        stripes = new Stripe[n];
+        for (int p = 0; p < n; ++p) stripes[p] = new Stripe();
+    }
+
+    /**
+     * Answers the interner used by {@link OctetString#intern()}.
+     *
+     * @return  the shared interner instance
+     */
+
+    public static OctetStringInterner shared() {
+        return SHARED;
+    }
+
+    /**
+     * Answers a new, empty interner, whose table is split into (at least)
+     * the given number of stripes. More stripes reduce contention when many
+     * threads add new entries concurrently.
+     *
+     * @param stripeCount   desired number of stripes
+     *
+     * @return  a new interner
+     */
+
+    public static OctetStringInterner create(int stripeCount) {
+        if (stripeCount < 1 || stripeCount > (1 << 16)) throw new IllegalArgumentException("invalid stripe count: " + stripeCount);
+        return new OctetStringInterner(stripeCount);
+    }
+
+    public static OctetStringInterner create() {
+        return create(64);
+    }
+
+    /**
+     * Answers the canonical instance equal to {@code value}. If there is
+     * none yet, a {@linkplain OctetString#compact() compact} version of
+     * {@code value} becomes the canonical instance.
+     *
+     * @param value     octet string to intern
+     *
+     * @return  the canonical instance equal to {@code value}
+     */
+
+    public OctetString intern(OctetString value) {
+        final int hash = value.hashCode();
+        final Stripe stripe = stripes[((hash * 0x9e3779b9) >>> 16) & (stripes.length - 1)];
+        final OctetString found = stripe.find(value, hash);
+        if (found != null) {
+            hits.increment();
+            return found;
+        } else {
+            return stripe.insert(value, hash);
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Answers the fraction of calls to {@link #intern(OctetString)}, which
+     * found an existing canonical instance, or 0, if there haven't been any
+     * calls yet.
+     *
+     * @return  the hit rate in the range [0, 1]
+     */
+
+    public double hitRate() {
+        final long h = hits.sum();
+        final long total = h + misses.sum();
+        return total == 0? 0.0 : (double) h / total;
+    }
+
+    /**
+     * Answers the number of entries currently held by this interner. Entries
+     * are dropped lazily after their octet strings have been collected, so the
+     * value is an upper bound of the number of live canonical instances.
+     *
+     * @return  the approximate number of entries
+     */
+
+    public int size() {
+        int n = 0;
+        for (Stripe s: stripes) n += s.count;
+        return n;
+    }
+
+    private static final class Entry extends WeakReference<OctetString> {
+
+        final int hash;
+        final Entry next;
+
+        Entry(OctetString referent, int hash, Entry next, ReferenceQueue<OctetString> queue) {
+            super(referent, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    private static int bucket(int hash, int length) {
+        return (hash ^ (hash >>> 16)) & (length - 1);
+    }
+
+    // Entries are immutable, and the table reference is volatile, so readers
+    // can scan a bucket without locking. A reader may miss an entry added
+    // concurrently; it then falls back to insert, which rechecks under the lock.
+
+    private final class Stripe {
+
+        private final ReferenceQueue<OctetString> queue = new ReferenceQueue<>();
+        private volatile Entry[] table = new Entry[16];
+        private volatile int count;
+
+        OctetString find(OctetString value, int hash) {
+            final Entry[] tab = table;
+            for (Entry e = tab[bucket(hash, tab.length)]; e != null; e = e.next) {
+                if (e.hash == hash) {
+                    final OctetString candidate = e.get();
+                    if (candidate != null && candidate.equals(value)) return candidate;
+                }
+            }
+            return null;
+        }
+
+        synchronized OctetString insert(OctetString value, int hash) {
+            expunge();
+            final OctetString present = find(value, hash);
+            if (present != null) {
+                hits.increment();
+                return present;
+            } else {
+                misses.increment();
+                final OctetString canonical = value.compact();
+                Entry[] tab = table;
+                if (count >= tab.length - (tab.length >>> 2)) tab = resize(tab);
+                final int slot = bucket(hash, tab.length);
+                tab[slot] = new Entry(canonical, hash, tab[slot], queue);
+                table = tab;
+                count = count + 1;
+                return canonical;
+            }
+        }
+
+        private Entry[] resize(Entry[] old) {
+            final Entry[] tab = new Entry[old.length << 1];
+            for (Entry head: old) {
+                for (Entry e = head; e != null; e = e.next) {
+                    final OctetString referent = e.get();
+                    if (referent != null) {
+                        final int slot = bucket(e.hash, tab.length);
+                        tab[slot] = new Entry(referent, e.hash, tab[slot], queue);
+                    } else {
+                        count = count - 1;
+                    }
+                }
+            }
+            return tab;
+        }
+
+        private void expunge() {
+            Object ref;
+            while ((ref = queue.poll()) != null) {
+                final Entry dead = (Entry) ref;
+                final Entry[] tab = table;
+                final int slot = bucket(dead.hash, tab.length);
+                tab[slot] = remove(tab[slot], dead);
+            }
+        }
+
+        private Entry remove(Entry chain, Entry dead) {
+            if (chain == null) return null;
+            else if (chain == dead) {
+                count = count - 1;
+                return chain.next;
+            } else {
+                final Entry rest = remove(chain.next, dead);
+                if (rest == chain.next) return chain;
+                else {
+                    final OctetString referent = chain.get();
+                    if (referent != null) return new Entry(referent, chain.hash, rest, queue);
+                    else {
+                        count = count - 1;
+                        return rest;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package darts.lib.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Algorithms operating on the raw backing arrays of octet strings. All
+ * indices passed to these functions are absolute positions in the arrays,
+ * and have already been validated by the caller.
+ */
+
+final class OctetStringSupport {
+
+    private static final VarHandle LONG_ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, java.nio.ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_BUFFER = MethodHandles.byteBufferViewVarHandle(long[].class, java.nio.ByteOrder.LITTLE_ENDIAN);
+    private static final long LOW_BITS = 0x7f7f7f7f7f7f7f7fL;
+    private static final long ONES = 0x0101010101010101L;
+
+    // region Searching
+
+    /**
+     * Answers a word, whose octets have their high bit set exactly where
+     * the corresponding octet of {@code word} is zero. Unlike the more common
+     * {@code (x - 0x01..) & ~x & 0x80..} formula, this one does not produce
+     * false positives above a zero octet, so it can be scanned from both ends.
+     */
+
+    private static long zeroOctets(long word) {
+        return ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+    }
+
+    static int indexOf(byte[] data, int start, int end, byte octet) {
+        final long pattern = ONES * (octet & 0xff);
+        int p = start;
+        for (; p + 8 <= end; p += 8) {
+            final long found = zeroOctets((long) LONG_ARRAY.get(data, p) ^ pattern);
+            if (found != 0) return p + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+        for (; p < end; ++p) {
+            if (data[p] == octet) return p;
+        }
+        return -1;
+    }
+
+    static int lastIndexOf(byte[] data, int start, int end, byte octet) {
+        final long pattern = ONES * (octet & 0xff);
+        int p = end;
+        for (; p - 8 >= start; p -= 8) {
+            final long found = zeroOctets((long) LONG_ARRAY.get(data, p - 8) ^ pattern);
+            if (found != 0) return p - 1 - (Long.numberOfLeadingZeros(found) >>> 3);
+        }
+        while (p > start) {
+            if (data[--p] == octet) return p;
+        }
+        return -1;
+    }
+
+    static int indexOf(ByteBuffer data, int start, int end, byte octet) {
+        final long pattern = ONES * (octet & 0xff);
+        int p = start;
+        for (; p + 8 <= end; p += 8) {
+            final long found = zeroOctets((long) LONG_BUFFER.get(data, p) ^ pattern);
+            if (found != 0) return p + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+        for (; p < end; ++p) {
+            if (data.get(p) == octet) return p;
+        }
+        return -1;
+    }
+
+    static int lastIndexOf(ByteBuffer data, int start, int end, byte octet) {
+        final long pattern = ONES * (octet & 0xff);
+        int p = end;
+        for (; p - 8 >= start; p -= 8) {
+            final long found = zeroOctets((long) LONG_BUFFER.get(data, p - 8) ^ pattern);
+            if (found != 0) return p - 1 - (Long.numberOfLeadingZeros(found) >>> 3);
+        }
+        while (p > start) {
+            if (data.get(--p) == octet) return p;
+        }
+        return -1;
+    }
+
+    /**
+     * Searches for the first occurrence of {@code needle[nstart..nend)}
+     * in {@code data[start..end)} using the Boyer-Moore-Horspool algorithm.
+     * The needle must not be empty.
+     */
+
+    static int indexOf(byte[] data, int start, int end, byte[] needle, int nstart, int nend) {
+        final int nlen = nend - nstart;
+        final int last = nlen - 1;
+        final byte lastOctet = needle[nstart + last];
+        final int[] shifts = forwardShifts(needle, nstart, nend);
+        for (int p = start; p + nlen <= end;) {
+            final byte tail = data[p + last];
+            if (tail == lastOctet && Arrays.equals(data, p, p + last, needle, nstart, nstart + last)) return p;
+            p += shifts[tail & 0xff];
+        }
+        return -1;
+    }
+
+    static int indexOf(ByteBuffer data, int start, int end, byte[] needle, int nstart, int nend) {
+        final int nlen = nend - nstart;
+        final int last = nlen - 1;
+        final byte lastOctet = needle[nstart + last];
+        final int[] shifts = forwardShifts(needle, nstart, nend);
+        for (int p = start; p + nlen <= end;) {
+            final byte tail = data.get(p + last);
+            if (tail == lastOctet && mismatch(data, p, needle, nstart, last) < 0) return p;
+            p += shifts[tail & 0xff];
+        }
+        return -1;
+    }
+
+    /**
+     * Searches for the last occurrence of {@code needle[nstart..nend)}
+     * in {@code data[start..end)}. This is Horspool's algorithm run
+     * backwards: the window is anchored at its first octet, and moves
+     * towards the start of the range.
+     */
+
+    static int lastIndexOf(byte[] data, int start, int end, byte[] needle, int nstart, int nend) {
+        final int nlen = nend - nstart;
+        final byte firstOctet = needle[nstart];
+        final int[] shifts = backwardShifts(needle, nstart, nend);
+        for (int p = end - nlen; p >= start;) {
+            final byte head = data[p];
+            if (head == firstOctet && Arrays.equals(data, p + 1, p + nlen, needle, nstart + 1, nend)) return p;
+            p -= shifts[head & 0xff];
+        }
+        return -1;
+    }
+
+    static int lastIndexOf(ByteBuffer data, int start, int end, byte[] needle, int nstart, int nend) {
+        final int nlen = nend - nstart;
+        final byte firstOctet = needle[nstart];
+        final int[] shifts = backwardShifts(needle, nstart, nend);
+        for (int p = end - nlen; p >= start;) {
+            final byte head = data.get(p);
+            if (head == firstOctet && mismatch(data, p + 1, needle, nstart + 1, nlen - 1) < 0) return p;
+            p -= shifts[head & 0xff];
+        }
+        return -1;
+    }
+
+    private static int[] forwardShifts(byte[] needle, int nstart, int nend) {
+        final int nlen = nend - nstart;
+        final int[] shifts = new int[256];
+        Arrays.fill(shifts, nlen);
+        for (int k = 0; k < nlen - 1; ++k) shifts[needle[nstart + k] & 0xff] = nlen - 1 - k;
+        return shifts;
+    }
+
+    private static int[] backwardShifts(byte[] needle, int nstart, int nend) {
+        final int nlen = nend - nstart;
+        final int[] shifts = new int[256];
+        Arrays.fill(shifts, nlen);
+        for (int k = nlen - 1; k > 0; --k) shifts[needle[nstart + k] & 0xff] = k;
+        return shifts;
+    }
+
+    // endregion
+
+    // region Hex Encoding
+
+    private static final byte[] HEX_PAIRS = new byte[512];
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        final byte[] digits = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+        for (int b = 0; b < 256; ++b) {
+            HEX_PAIRS[2 * b] = digits[b >>> 4];
+            HEX_PAIRS[2 * b + 1] = digits[b & 15];
+        }
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int d = 0; d < 16; ++d) {
+            HEX_VALUES[digits[d]] = (byte) d;
+            HEX_VALUES[Character.toUpperCase(digits[d])] = (byte) d;
+        }
+    }
+
+    /**
+     * Writes the lower-case hex digits of {@code src[start..end)} as ASCII
+     * characters into {@code dst}, starting at index {@code dpos}.
+     */
+
+    static void encodeHex(byte[] src, int start, int end, byte[] dst, int dpos) {
+        for (int p = start; p < end; ++p, dpos += 2) {
+            final int b = (src[p] & 0xff) << 1;
+            dst[dpos] = HEX_PAIRS[b];
+            dst[dpos + 1] = HEX_PAIRS[b + 1];
+        }
+    }
+
+    static void encodeHex(byte[] src, int start, int end, char[] dst, int dpos) {
+        for (int p = start; p < end; ++p, dpos += 2) {
+            final int b = (src[p] & 0xff) << 1;
+            dst[dpos] = (char) HEX_PAIRS[b];
+            dst[dpos + 1] = (char) HEX_PAIRS[b + 1];
+        }
+    }
+
+    /**
+     * Decodes the pairs of hex digits in {@code src[start..end)} into
+     * {@code dst}, starting at index {@code dpos}. Accepts upper and lower
+     * case digits. The number of characters must be even.
+     *
+     * @throws IllegalArgumentException if there is a character, which is
+     *         not a hex digit
+     */
+
+    static void decodeHex(CharSequence src, int start, int end, byte[] dst, int dpos) {
+        for (int p = start; p < end; p += 2) {
+            final char c1 = src.charAt(p);
+            final char c2 = src.charAt(p + 1);
+            final int d1 = c1 < 128? HEX_VALUES[c1] : -1;
+            final int d2 = c2 < 128? HEX_VALUES[c2] : -1;
+            if ((d1 | d2) < 0) throw new IllegalArgumentException("invalid hex digit at index " + (d1 < 0? p : p + 1));
+            dst[dpos++] = (byte) ((d1 << 4) | d2);
+        }
+    }
+
+    // endregion
+
+    // region Mismatch
+
+    /**
+     * Answers the index (relative to the start positions) of the first octet,
+     * where {@code a[astart..astart+len)} and {@code b[bstart..bstart+len)}
+     * differ, or -1, if the ranges are equal. Compares eight octets at a time;
+     * reading them little endian makes the first difference show up in the
+     * lowest differing bits.
+     */
+
+    static int mismatch(ByteBuffer a, int astart, byte[] b, int bstart, int len) {
+        int p = 0;
+        for (; p + 8 <= len; p += 8) {
+            final long diff = (long) LONG_BUFFER.get(a, astart + p) ^ (long) LONG_ARRAY.get(b, bstart + p);
+            if (diff != 0) return p + (Long.numberOfTrailingZeros(diff) >>> 3);
+        }
+        for (; p < len; ++p) {
+            if (a.get(astart + p) != b[bstart + p]) return p;
+        }
+        return -1;
+    }
+
+    static int mismatch(ByteBuffer a, int astart, ByteBuffer b, int bstart, int len) {
+        int p = 0;
+        for (; p + 8 <= len; p += 8) {
+            final long diff = (long) LONG_BUFFER.get(a, astart + p) ^ (long) LONG_BUFFER.get(b, bstart + p);
+            if (diff != 0) return p + (Long.numberOfTrailingZeros(diff) >>> 3);
+        }
+        for (; p < len; ++p) {
+            if (a.get(astart + p) != b.get(bstart + p)) return p;
+        }
+        return -1;
+    }
+
+    // endregion
+
+    // region Bitwise Operations
+
+    // Big endian, so that the first octet ends up in the most significant
+    // bits, which keeps leading zero counts and unsigned comparisons of
+    // whole words consistent with the octet order.
+
+    static final VarHandle BE_LONG_ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, java.nio.ByteOrder.BIG_ENDIAN);
+    static final VarHandle BE_LONG_BUFFER = MethodHandles.byteBufferViewVarHandle(long[].class, java.nio.ByteOrder.BIG_ENDIAN);
+
+    static final int AND = 0;
+    static final int OR = 1;
+    static final int XOR = 2;
+    static final int NOT = 3;
+
+    static long apply(int op, long a, long b) {
+        switch (op) {
+            case AND: return a & b;
+            case OR: return a | b;
+            case XOR: return a ^ b;
+            default: return ~a;
+        }
+    }
+
+    static int bitCount(byte[] data, int start, int end) {
+        int count = 0;
+        int p = start;
+        for (; p + 8 <= end; p += 8) count += Long.bitCount((long) LONG_ARRAY.get(data, p));
+        for (; p < end; ++p) count += Integer.bitCount(0xff & data[p]);
+        return count;
+    }
+
+    static void bitwise(int op, byte[] left, int lpos, byte[] right, int rpos, byte[] dst, int dpos, int len) {
+        final int words = len & ~7;
+        switch (op) {
+            case AND:
+                for (int p = 0; p < words; p += 8) LONG_ARRAY.set(dst, dpos + p, (long) LONG_ARRAY.get(left, lpos + p) & (long) LONG_ARRAY.get(right, rpos + p));
+                break;
+            case OR:
+                for (int p = 0; p < words; p += 8) LONG_ARRAY.set(dst, dpos + p, (long) LONG_ARRAY.get(left, lpos + p) | (long) LONG_ARRAY.get(right, rpos + p));
+                break;
+            case XOR:
+                for (int p = 0; p < words; p += 8) LONG_ARRAY.set(dst, dpos + p, (long) LONG_ARRAY.get(left, lpos + p) ^ (long) LONG_ARRAY.get(right, rpos + p));
+                break;
+            default:
+                for (int p = 0; p < words; p += 8) LONG_ARRAY.set(dst, dpos + p, ~(long) LONG_ARRAY.get(left, lpos + p));
+                break;
+        }
+        for (int p = words; p < len; ++p) dst[dpos + p] = (byte) apply(op, left[lpos + p], right[rpos + p]);
+    }
+
+    static int compareDistance(byte[] t, int tpos, byte[] a, int apos, byte[] b, int bpos, int len) {
+        int p = 0;
+        for (; p + 8 <= len; p += 8) {
+            final long tw = (long) BE_LONG_ARRAY.get(t, tpos + p);
+            final long da = tw ^ (long) BE_LONG_ARRAY.get(a, apos + p);
+            final long db = tw ^ (long) BE_LONG_ARRAY.get(b, bpos + p);
+            if (da != db) return Long.compareUnsigned(da, db);
+        }
+        for (; p < len; ++p) {
+            final int da = 0xff & (t[tpos + p] ^ a[apos + p]);
+            final int db = 0xff & (t[tpos + p] ^ b[bpos + p]);
+            if (da != db) return Integer.compare(da, db);
+        }
+        return 0;
+    }
+
+    // endregion
+
+    // region Segmented Contents
+
+    /**
+     * Compares the contents of two sequences of byte buffers (each taken
+     * from position to limit) according to {@link OctetString#compareTo(OctetString)}.
+     * Consumes the buffers.
+     */
+
+    static int compare(ByteBuffer[] left, ByteBuffer[] right) {
+        long llen = 0, rlen = 0;
+        for (ByteBuffer b: left) llen += b.remaining();
+        for (ByteBuffer b: right) rlen += b.remaining();
+        int li = 0, ri = 0;
+        while (true) {
+            while (li < left.length && !left[li].hasRemaining()) ++li;
+            while (ri < right.length && !right[ri].hasRemaining()) ++ri;
+            if (li == left.length || ri == right.length) return Long.compare(llen, rlen);
+            final ByteBuffer lb = left[li];
+            final ByteBuffer rb = right[ri];
+            final int n = Math.min(lb.remaining(), rb.remaining());
+            final int lp = lb.position();
+            final int rp = rb.position();
+            final int m = lb.duplicate().limit(lp + n).mismatch(rb.duplicate().limit(rp + n));
+            if (m >= 0) return (0xff & lb.get(lp + m)) - (0xff & rb.get(rp + m));
+            lb.position(lp + n);
+            rb.position(rp + n);
+        }
+    }
+
+    /**
+     * Writes all remaining contents of the given buffers to the channel,
+     * using gathering writes if the channel supports them.
+     */
+
+    static void writeFully(WritableByteChannel channel, ByteBuffer[] srcs, long total) throws IOException {
+        if (channel instanceof GatheringByteChannel) {
+            final GatheringByteChannel gather = (GatheringByteChannel) channel;
+            long remaining = total;
+            while (remaining > 0) remaining -= gather.write(srcs);
+        } else {
+            for (ByteBuffer src: srcs) {
+                while (src.hasRemaining()) channel.write(src);
+            }
+        }
+    }
+
+    // endregion
+}
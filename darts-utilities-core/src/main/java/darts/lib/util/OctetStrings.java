@@ -0,0 +1,198 @@
+package darts.lib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Algorithms operating on collections of {@link OctetString} instances.
+ */
+
+public final class OctetStrings {
+
+    private static final int INSERTION_THRESHOLD = 32;
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+    private static final int BUCKETS = 257;
+
+    private OctetStrings() {
+    }
+
+    // region Sorting
+
+    /**
+     * Sorts the given array in the order defined by {@link OctetString#compareTo(OctetString)}.
+     * This is a most-significant-digit radix sort, which looks at each octet of
+     * each key only a few times, instead of comparing whole keys over and over
+     * again. Large buckets are sorted in parallel in the common fork-join pool.
+     * The sort is stable.
+     *
+     * @param keys  array to sort in place
+     */
+
+    public static void sort(OctetString[] keys) {
+        sort(keys, 0, keys.length);
+    }
+
+    public static void sort(OctetString[] keys, int from, int to) {
+        if (from < 0 || to < from || keys.length < to) throw new IndexOutOfBoundsException();
+        final int n = to - from;
+        if (n < 2) return;
+        else if (n <= INSERTION_THRESHOLD) insertionSort(keys, from, to);
+        else {
+            final Sorter sorter = new Sorter(keys, from, n);
+            final SortTask task = new SortTask(sorter, from, to, 0);
+            if (n < PARALLEL_THRESHOLD) task.compute();
+            else ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+
+    /**
+     * Sorts the given list in the order defined by {@link OctetString#compareTo(OctetString)}.
+     * Like {@link List#sort(java.util.Comparator)}, this dumps the list into an
+     * array, sorts the array, and writes the elements back.
+     *
+     * @param keys  list to sort in place
+     */
+
+    public static void sort(List<OctetString> keys) {
+        final OctetString[] array = keys.toArray(new OctetString[0]);
+        sort(array);
+        final ListIterator<OctetString> it = keys.listIterator();
+        for (OctetString key: array) {
+            it.next();
+            it.set(key);
+        }
+    }
+
+    private static void insertionSort(OctetString[] keys, int from, int to) {
+        for (int i = from + 1; i < to; ++i) {
+            final OctetString key = keys[i];
+            int j = i - 1;
+            while (j >= from && keys[j].compareTo(key) > 0) {
+                keys[j + 1] = keys[j];
+                --j;
+            }
+            keys[j + 1] = key;
+        }
+    }
+
+    /**
+     * State shared by all tasks of a single sort operation. Tasks work on
+     * disjoint ranges of the arrays, so they need no synchronization.
+     */
+
+    private static final class Sorter {
+
+        final OctetString[] keys;
+        final OctetString[] aux;
+        final short[] digits;
+        final int base;
+
+        Sorter(OctetString[] keys, int base, int count) {
+            this.keys = keys;
+            this.aux = new OctetString[count];
+            this.digits = new short[count];
+            this.base = base;
+        }
+
+        /**
+         * Distributes {@code keys[from..to)} by their octet at {@code depth}.
+         * Bucket 0 holds the keys, which end before {@code depth}, and bucket
+         * {@code k + 1} those with octet {@code k}. Answers the end of each
+         * bucket relative to {@code from}, or {@code null}, if all keys fall
+         * into the same bucket, in which case nothing has been moved.
+         */
+
+        int[] distribute(int from, int to, int depth) {
+            final OctetString[] keys = this.keys;
+            final short[] digits = this.digits;
+            final int[] counts = new int[BUCKETS + 1];
+            for (int p = from; p < to; ++p) {
+                final OctetString key = keys[p];
+                final int d = depth < key.length()? key.octetAt(depth) + 1 : 0;
+                digits[p - base] = (short) d;
+                counts[d + 1] += 1;
+            }
+            if (counts[digits[from - base] + 1] == to - from) return null;
+            for (int d = 0; d < BUCKETS; ++d) counts[d + 1] += counts[d];
+            final OctetString[] aux = this.aux;
+            final int offset = from - base;
+            for (int p = from; p < to; ++p) aux[offset + counts[digits[p - base]]++] = keys[p];
+            System.arraycopy(aux, offset, keys, from, to - from);
+            return counts;
+        }
+    }
+
+    private static final class SortTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Sorter sorter;
+        private final int from;
+        private final int to;
+        private final int depth;
+
+        SortTask(Sorter sorter, int from, int to, int depth) {
+            this.sorter = sorter;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            sort(from, to, depth);
+        }
+
+        /**
+         * Sorts {@code keys[from..to)}, all of which agree on their first
+         * {@code depth} octets. Only the smaller buckets are handled by
+         * recursion (or forked), while the largest one is processed by the
+         * loop itself, so the recursion depth stays logarithmic in the number
+         * of keys, no matter how long their common prefixes are.
+         */
+
+        private void sort(int from, int to, int depth) {
+            final ArrayList<SortTask> forked = new ArrayList<>();
+            while (to - from > INSERTION_THRESHOLD) {
+                final int[] bounds = sorter.distribute(from, to, depth);
+                if (bounds == null) {
+                    // All keys share this octet (or all have ended, in which case
+                    // they are equal, and we are done).
+                    if (depth >= sorter.keys[from].length()) {
+                        from = to;
+                        break;
+                    }
+                    depth += 1;
+                    continue;
+                }
+                int largest = 1;
+                for (int d = 2; d < BUCKETS; ++d) {
+                    if (bounds[d] - bounds[d - 1] > bounds[largest] - bounds[largest - 1]) largest = d;
+                }
+                for (int d = 1; d < BUCKETS; ++d) {
+                    final int start = from + bounds[d - 1];
+                    final int end = from + bounds[d];
+                    final int size = end - start;
+                    if (d == largest || size < 2) continue;
+                    else if (size >= PARALLEL_THRESHOLD && inForkJoinPool()) {
+                        final SortTask task = new SortTask(sorter, start, end, depth + 1);
+                        task.fork();
+                        forked.add(task);
+                    } else {
+                        sort(start, end, depth + 1);
+                    }
+                }
+                to = from + bounds[largest];
+                from = from + bounds[largest - 1];
+                depth += 1;
+            }
+            if (to - from > 1) insertionSort(sorter.keys, from, to);
+            for (int p = forked.size() - 1; p >= 0; --p) forked.get(p).join();
+        }
+    }
+
+    // endregion
+}
@@ -0,0 +1,196 @@
+package darts.lib.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+
+/**
+ * Implementation of the 64-bit xxHash algorithm (XXH64). Besides the one-shot
+ * functions for heap arrays and byte buffers, instances of this class provide
+ * an incremental hasher, which produces the same results for contents fed to
+ * it in arbitrary pieces.
+ */
+
+final class XxHash64 {
+
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private static final VarHandle LONG_ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, java.nio.ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_ARRAY = MethodHandles.byteArrayViewVarHandle(int[].class, java.nio.ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_BUFFER = MethodHandles.byteBufferViewVarHandle(long[].class, java.nio.ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_BUFFER = MethodHandles.byteBufferViewVarHandle(int[].class, java.nio.ByteOrder.LITTLE_ENDIAN);
+
+    static long hash(byte[] data, int offset, int length, long seed) {
+        final int end = offset + length;
+        int p = offset;
+        long h;
+        if (length >= 32) {
+            long v1 = seed + P1 + P2;
+            long v2 = seed + P2;
+            long v3 = seed;
+            long v4 = seed - P1;
+            final int limit = end - 32;
+            do {
+                v1 = round(v1, (long) LONG_ARRAY.get(data, p));
+                v2 = round(v2, (long) LONG_ARRAY.get(data, p + 8));
+                v3 = round(v3, (long) LONG_ARRAY.get(data, p + 16));
+                v4 = round(v4, (long) LONG_ARRAY.get(data, p + 24));
+                p += 32;
+            } while (p <= limit);
+            h = converge(v1, v2, v3, v4);
+        } else {
+            h = seed + P5;
+        }
+        h += length;
+        while (p + 8 <= end) {
+            h = mixLong(h, (long) LONG_ARRAY.get(data, p));
+            p += 8;
+        }
+        if (p + 4 <= end) {
+            h = mixInt(h, (int) INT_ARRAY.get(data, p));
+            p += 4;
+        }
+        while (p < end) h = mixByte(h, data[p++]);
+        return avalanche(h);
+    }
+
+    static long hash(ByteBuffer data, int offset, int length, long seed) {
+        final int end = offset + length;
+        int p = offset;
+        long h;
+        if (length >= 32) {
+            long v1 = seed + P1 + P2;
+            long v2 = seed + P2;
+            long v3 = seed;
+            long v4 = seed - P1;
+            final int limit = end - 32;
+            do {
+                v1 = round(v1, (long) LONG_BUFFER.get(data, p));
+                v2 = round(v2, (long) LONG_BUFFER.get(data, p + 8));
+                v3 = round(v3, (long) LONG_BUFFER.get(data, p + 16));
+                v4 = round(v4, (long) LONG_BUFFER.get(data, p + 24));
+                p += 32;
+            } while (p <= limit);
+            h = converge(v1, v2, v3, v4);
+        } else {
+            h = seed + P5;
+        }
+        h += length;
+        while (p + 8 <= end) {
+            h = mixLong(h, (long) LONG_BUFFER.get(data, p));
+            p += 8;
+        }
+        if (p + 4 <= end) {
+            h = mixInt(h, (int) INT_BUFFER.get(data, p));
+            p += 4;
+        }
+        while (p < end) h = mixByte(h, data.get(p++));
+        return avalanche(h);
+    }
+
+    // region Incremental Hashing
+
+    private final long seed;
+    private final byte[] pending = new byte[32];
+    private int pendingLength;
+    private long total;
+    private long v1, v2, v3, v4;
+
+    XxHash64(long seed) {
+        this.seed = seed;
+        this.v1 = seed + P1 + P2;
+        this.v2 = seed + P2;
+        this.v3 = seed;
+        this.v4 = seed - P1;
+    }
+
+    void update(byte[] data, int offset, int length) {
+        total += length;
+        int p = offset;
+        final int end = offset + length;
+        if (pendingLength > 0) {
+            final int n = Math.min(32 - pendingLength, length);
+            System.arraycopy(data, p, pending, pendingLength, n);
+            pendingLength += n;
+            p += n;
+            if (pendingLength < 32) return;
+            consume(pending, 0);
+            pendingLength = 0;
+        }
+        while (p + 32 <= end) {
+            consume(data, p);
+            p += 32;
+        }
+        System.arraycopy(data, p, pending, 0, end - p);
+        pendingLength = end - p;
+    }
+
+    long digest() {
+        long h = total >= 32? converge(v1, v2, v3, v4) : seed + P5;
+        h += total;
+        int p = 0;
+        while (p + 8 <= pendingLength) {
+            h = mixLong(h, (long) LONG_ARRAY.get(pending, p));
+            p += 8;
+        }
+        if (p + 4 <= pendingLength) {
+            h = mixInt(h, (int) INT_ARRAY.get(pending, p));
+            p += 4;
+        }
+        while (p < pendingLength) h = mixByte(h, pending[p++]);
+        return avalanche(h);
+    }
+
+    private void consume(byte[] data, int p) {
+        v1 = round(v1, (long) LONG_ARRAY.get(data, p));
+        v2 = round(v2, (long) LONG_ARRAY.get(data, p + 8));
+        v3 = round(v3, (long) LONG_ARRAY.get(data, p + 16));
+        v4 = round(v4, (long) LONG_ARRAY.get(data, p + 24));
+    }
+
+    // endregion
+
+    // region Mixing Functions
+
+    private static long round(long acc, long input) {
+        return Long.rotateLeft(acc + input * P2, 31) * P1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        return (acc ^ round(0, value)) * P1 + P4;
+    }
+
+    private static long converge(long v1, long v2, long v3, long v4) {
+        long h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        h = mergeRound(h, v1);
+        h = mergeRound(h, v2);
+        h = mergeRound(h, v3);
+        return mergeRound(h, v4);
+    }
+
+    private static long mixLong(long h, long k) {
+        return Long.rotateLeft(h ^ round(0, k), 27) * P1 + P4;
+    }
+
+    private static long mixInt(long h, int k) {
+        return Long.rotateLeft(h ^ ((k & 0xFFFFFFFFL) * P1), 23) * P2 + P3;
+    }
+
+    private static long mixByte(long h, byte b) {
+        return Long.rotateLeft(h ^ ((b & 0xFF) * P5), 11) * P1;
+    }
+
+    private static long avalanche(long h) {
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        return h ^ (h >>> 32);
+    }
+
+    // endregion
+}
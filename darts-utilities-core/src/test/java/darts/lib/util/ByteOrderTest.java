@@ -2,6 +2,10 @@ package darts.lib.util;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class ByteOrderTest {
@@ -16,6 +20,86 @@ public class ByteOrderTest {
         roundTrip(ByteOrder.LITTLE_ENDIAN);
     }
 
+    @Test
+    public void bigEndian_layout() {
+        final var str = OctetString.builder()
+            .append(0x0102030405060708L, ByteOrder.BIG_ENDIAN)
+            .append(0x090a0b0c, ByteOrder.BIG_ENDIAN)
+            .append((short) 0x0d0e, ByteOrder.BIG_ENDIAN)
+            .toOctetString();
+        assertEquals(OctetString.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14), str);
+    }
+
+    @Test
+    public void littleEndian_layout() {
+        final var str = OctetString.builder()
+            .append(0x0102030405060708L, ByteOrder.LITTLE_ENDIAN)
+            .append(0x090a0b0c, ByteOrder.LITTLE_ENDIAN)
+            .append((short) 0x0d0e, ByteOrder.LITTLE_ENDIAN)
+            .toOctetString();
+        assertEquals(OctetString.of(8, 7, 6, 5, 4, 3, 2, 1, 12, 11, 10, 9, 14, 13), str);
+    }
+
+    @Test
+    public void accessors_work_on_slices_and_off_heap() {
+        for (var order: ByteOrder.values()) {
+            final var str = OctetString.builder()
+                .append(0x55)
+                .append(1.5, order)
+                .append(2.5f, order)
+                .append(0x8877665544332211L, order)
+                .toOctetString()
+                .substring(1);
+            for (var s: new OctetString[] { str, str.toOffHeap() }) {
+                assertEquals(1.5, order.doubleAt(s, 0), 0.0);
+                assertEquals(2.5f, order.floatAt(s, 8), 0.0f);
+                assertEquals(0x8877665544332211L, order.longAt(s, 12));
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void accessors_check_bounds() {
+        ByteOrder.BIG_ENDIAN.intAt(OctetString.of(1, 2, 3, 4, 5, 6).substring(0, 5), 2);
+    }
+
+    @Test
+    public void bulk_matches_single_access() {
+        final var rng = new Random();
+        final var longs = rng.longs(1000).toArray();
+        final var ints = rng.ints(1000).toArray();
+        final var doubles = rng.doubles(1000).toArray();
+        for (var order: ByteOrder.values()) {
+            final var bulk = OctetString.builder().append(7);
+            order.putAll(longs, 10, 900, bulk);
+            order.putAll(ints, 0, 1000, bulk);
+            order.putAll(doubles, 500, 500, bulk);
+            order.putAll(doubles, 1, 3, bulk);
+            final var single = OctetString.builder().append(7);
+            for (int p = 10; p < 900; ++p) single.append(longs[p], order);
+            for (int p = 0; p < 1000; ++p) single.append(ints[p], order);
+            for (int p = 1; p < 3; ++p) single.append(doubles[p], order);
+            final var str = bulk.toOctetString();
+            assertEquals(single.toOctetString(), str);
+            for (var s: new OctetString[] { str, str.toOffHeap() }) {
+                final var longsRead = new long[1000];
+                order.longsAt(s, 1, longsRead, 10, 900);
+                assertArrayEquals(Arrays.copyOfRange(longs, 10, 900), Arrays.copyOfRange(longsRead, 10, 900));
+                final var intsRead = new int[1000];
+                order.intsAt(s, 1 + 890 * 8, intsRead, 0, 1000);
+                assertArrayEquals(ints, intsRead);
+                final var doublesRead = new double[2];
+                order.doublesAt(s, 1 + 890 * 8 + 4000, doublesRead, 0, 2);
+                assertArrayEquals(Arrays.copyOfRange(doubles, 1, 3), doublesRead, 0.0);
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void bulk_accessors_check_bounds() {
+        ByteOrder.LITTLE_ENDIAN.longsAt(OctetString.randomString(16).substring(1), 0, new long[2], 0, 2);
+    }
+
     private void roundTrip(ByteOrder order) {
         final var buf = OctetString.builder();
         buf.append(0x8877665544332211L, order);
@@ -0,0 +1,113 @@
+package darts.lib.util;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class OctetStringFramingTest {
+
+    private static List<OctetString> sampleRecords(int count, long seed) {
+        final var random = new Random(seed);
+        final var result = new ArrayList<OctetString>();
+        for (int k = 0; k < count; ++k) {
+            final int r = random.nextInt(100);
+            final int len = r < 70? random.nextInt(40) : (r < 95? 200 + random.nextInt(2000) : 70000 + random.nextInt(5000));
+            result.add(OctetString.randomString(len));
+        }
+        result.add(OctetString.empty());
+        return result;
+    }
+
+    @Test
+    public void round_trips_through_streams() throws IOException {
+        final var records = sampleRecords(500, 1);
+        for (var codec: new OctetStringFraming[] { OctetStringFraming.varint(), OctetStringFraming.fixed32(), OctetStringFraming.varint().withBufferSize(100) }) {
+            final var bytes = new ByteArrayOutputStream();
+            try (var writer = codec.writer(bytes)) {
+                writer.writeAll(records);
+            }
+            final var read = new ArrayList<OctetString>();
+            try (var reader = codec.reader(new ByteArrayInputStream(bytes.toByteArray()))) {
+                OctetString record;
+                while ((record = reader.next()) != null) read.add(record);
+                assertNull(reader.next());
+            }
+            assertEquals(records, read);
+        }
+    }
+
+    @Test
+    public void round_trips_through_channels() throws IOException {
+        final var records = sampleRecords(300, 2);
+        final var codec = OctetStringFraming.fixed32().withBufferSize(4096);
+        final var bytes = new ByteArrayOutputStream();
+        try (var writer = codec.writer(Channels.newChannel(bytes))) {
+            for (var record: records) writer.write(record.toOffHeap());
+        }
+        try (var reader = codec.reader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())))) {
+            for (var record: records) assertEquals(record, reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void varint_prefix_matches_builder() throws IOException {
+        final var record = OctetString.randomString(300);
+        final var bytes = new ByteArrayOutputStream();
+        try (var writer = OctetStringFraming.varint().writer(bytes)) {
+            writer.write(record);
+        }
+        assertEquals(OctetString.builder().appendVarInt(300).append(record).toOctetString(), OctetString.fromByteArray(bytes.toByteArray()));
+    }
+
+    @Test
+    public void records_can_be_traversed_repeatedly() throws IOException {
+        final var records = sampleRecords(100, 3);
+        final var file = Files.createTempFile("frames", ".bin");
+        try {
+            try (var writer = OctetStringFraming.varint().writer(Files.newOutputStream(file))) {
+                writer.writeAll(records);
+            }
+            final var traversable = OctetStringFraming.varint().records(file);
+            assertEquals(records, traversable.collect(Collectors.toList()));
+            assertEquals(records, traversable.collect(Collectors.toList()));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void rejects_truncated_and_oversized_records() throws IOException {
+        final var bytes = new ByteArrayOutputStream();
+        try (var writer = OctetStringFraming.fixed32().writer(bytes)) {
+            writer.write(OctetString.randomString(1000));
+        }
+        final var data = bytes.toByteArray();
+        try {
+            OctetStringFraming.fixed32().reader(new ByteArrayInputStream(data, 0, data.length - 1)).next();
+            fail();
+        } catch (EOFException expected) {
+            // fall through
+        }
+        try {
+            OctetStringFraming.fixed32().reader(new ByteArrayInputStream(data, 0, 2)).next();
+            fail();
+        } catch (EOFException expected) {
+            // fall through
+        }
+        try {
+            OctetStringFraming.fixed32().withMaxRecordLength(999).reader(new ByteArrayInputStream(data)).next();
+            fail();
+        } catch (IOException expected) {
+            assertFalse(expected instanceof EOFException);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package darts.lib.util;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class OctetStringInternerTest {
+
+    @Test
+    public void intern_answers_canonical_instance() {
+        final var interner = OctetStringInterner.create(4);
+        final var first = OctetString.of(1, 2, 3);
+        final var second = OctetString.of(1, 2, 3);
+        assertSame(first, interner.intern(first));
+        assertSame(first, interner.intern(second));
+        assertEquals(1, interner.size());
+        assertEquals(1, interner.hitCount());
+        assertEquals(1, interner.missCount());
+        assertEquals(0.5, interner.hitRate(), 0.0);
+    }
+
+    @Test
+    public void intern_compacts_slices() {
+        final var interner = OctetStringInterner.create();
+        final var slice = OctetString.randomString(1000).substring(10, 20);
+        final var canonical = interner.intern(slice);
+        assertEquals(slice, canonical);
+        assertSame(canonical, canonical.compact());
+        assertSame(canonical, interner.intern(slice.compact()));
+    }
+
+    @Test
+    public void intern_grows_table() {
+        final var interner = OctetStringInterner.create(1);
+        final var keep = new ArrayList<OctetString>();
+        for (int p = 0; p < 10000; ++p) keep.add(interner.intern(OctetString.builder().append(p, ByteOrder.BIG_ENDIAN).toOctetString()));
+        assertEquals(10000, interner.size());
+        for (int p = 0; p < 10000; ++p) assertSame(keep.get(p), interner.intern(OctetString.builder().append(p, ByteOrder.BIG_ENDIAN).toOctetString()));
+    }
+
+    @Test
+    public void intern_is_consistent_across_threads() throws Exception {
+        final var interner = OctetStringInterner.create(8);
+        final var seen = new ConcurrentHashMap<OctetString, OctetString>();
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            final var tasks = new ArrayList<Future<?>>();
+            for (int t = 0; t < 4; ++t) {
+                tasks.add(pool.submit(() -> {
+                    for (int p = 0; p < 5000; ++p) {
+                        final var key = OctetString.builder().append(p % 500, ByteOrder.BIG_ENDIAN).toOctetString();
+                        final var canonical = interner.intern(key);
+                        assertSame(canonical, seen.computeIfAbsent(canonical, k -> k));
+                    }
+                }));
+            }
+            for (var task: tasks) task.get(1, TimeUnit.MINUTES);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(500, seen.size());
+        assertEquals(20000, interner.hitCount() + interner.missCount());
+    }
+
+    @Test
+    public void intern_drops_collected_entries() throws InterruptedException {
+        final var interner = OctetStringInterner.create(1);
+        final var keep = new ArrayList<OctetString>();
+        final var dropped = new WeakReference<>(interner.intern(OctetString.of(0xff, 0xff, 0xff, 0xff, 0xff)));
+        for (int p = 0; p < 10000; ++p) {
+            final var canonical = interner.intern(OctetString.builder().append(p, ByteOrder.BIG_ENDIAN).toOctetString());
+            if (p % 100 == 0) keep.add(canonical);
+        }
+        assertEquals(10001, interner.size());
+        // Entries are only expunged when new ones are added, so keep adding
+        // (and immediately dropping) fresh entries until the table shrinks.
+        for (int round = 0; round < 100 && (dropped.get() != null || interner.size() > 1000); ++round) {
+            System.gc();
+            Thread.sleep(10);
+            interner.intern(OctetString.builder().append(-1 - round, ByteOrder.BIG_ENDIAN).toOctetString());
+        }
+        assertNull(dropped.get());
+        assertTrue(interner.size() <= 1000);
+        assertTrue(interner.size() >= keep.size());
+        final var fresh = OctetString.of(0xff, 0xff, 0xff, 0xff, 0xff);
+        assertSame(fresh, interner.intern(fresh));
+        for (int p = 0; p < keep.size(); ++p) {
+            assertSame(keep.get(p), interner.intern(OctetString.builder().append(100 * p, ByteOrder.BIG_ENDIAN).toOctetString()));
+        }
+    }
+
+    @Test
+    public void shared_interner_via_octet_string() {
+        final var value = OctetString.randomString(32);
+        assertSame(value.intern(), OctetString.fromByteArray(value.toByteArray()).intern());
+    }
+}
@@ -4,8 +4,21 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32C;
 
 import static org.junit.Assert.*;
 
@@ -62,6 +75,70 @@ public class OctetStringTest {
         }
     }
 
+    @Test
+    public void compareTo_agrees_with_bytewise_ordering() {
+        final var rng = new Random();
+        final var prefix = OctetString.randomString(40);
+        for (int p = 0; p < 1000; ++p) {
+            final var l = prefix.substring(0, rng.nextInt(41)).toBuilder().append(OctetString.randomString(rng.nextInt(3))).toOctetString();
+            final var r = prefix.substring(rng.nextInt(2), rng.nextInt(39) + 2).toBuilder().append(OctetString.randomString(rng.nextInt(3))).toOctetString();
+            assertEquals(isign(bytewiseCompare(l, r)), isign(l.compareTo(r)));
+            assertEquals(isign(bytewiseCompare(r, l)), isign(r.compareTo(l)));
+            assertEquals(isign(bytewiseCompare(l, r)), isign(l.toOffHeap().compareTo(r)));
+        }
+    }
+
+    @Test
+    public void compareTo_array_ranges_agrees_with_compareTo() {
+        final var rng = new Random();
+        final var prefix = OctetString.randomString(40);
+        for (int p = 0; p < 1000; ++p) {
+            final var l = prefix.substring(0, rng.nextInt(41)).toBuilder().append(OctetString.randomString(rng.nextInt(3))).toOctetString();
+            final var r = prefix.substring(rng.nextInt(2), rng.nextInt(39) + 2).toBuilder().append(OctetString.randomString(rng.nextInt(3))).toOctetString();
+            final var padded = OctetString.builder().append(OctetString.randomString(3)).append(r).append(OctetString.randomString(5)).toOctetString().toByteArray();
+            final int expected = isign(l.compareTo(r));
+            final var rope = l.length() < 2? l : OctetString.concat(l.substring(0, 1).toOffHeap(), l.substring(1));
+            for (var s: new OctetString[] { l, l.toOffHeap(), rope }) {
+                assertEquals(expected, isign(s.compareTo(padded, 3, 3 + r.length())));
+                assertEquals(expected == 0, s.contentEquals(padded, 3, 3 + r.length()));
+                assertEquals(expected == 0, s.contentEquals(ByteBuffer.wrap(padded, 3, r.length())));
+                assertEquals(expected == 0, s.contentEquals(r.toOffHeap().toByteBuffer()));
+            }
+            assertEquals(expected, isign(OctetString.compare(l.toByteArray(), 0, l.length(), padded, 3, 3 + r.length())));
+        }
+        assertTrue(OctetString.compare(new byte[] { (byte) 0xff }, 0, 1, new byte[] { 1 }, 0, 1) > 0);
+        assertTrue(OctetString.of(255).toOffHeap().compareTo(new byte[] { 1 }, 0, 1) > 0);
+    }
+
+    @Test
+    public void compareTo_array_ranges_checks_bounds() {
+        final var heap = OctetString.of(1, 2, 3);
+        final var array = new byte[] { 1, 2, 3 };
+        final var rope = OctetString.concat(heap.substring(0, 1), heap.substring(1).toOffHeap());
+        for (var s: new OctetString[] { heap, heap.toOffHeap(), rope }) {
+            for (int[] range: new int[][] { { 2, 1 }, { -1, 2 }, { 0, 4 } }) {
+                try {
+                    s.compareTo(array, range[0], range[1]);
+                    fail();
+                } catch (IndexOutOfBoundsException expected) {
+                    // fall through
+                }
+                try {
+                    OctetString.compare(array, range[0], range[1], array, 0, 3);
+                    fail();
+                } catch (IndexOutOfBoundsException expected) {
+                    // fall through
+                }
+                try {
+                    OctetString.compare(array, 0, 3, array, range[0], range[1]);
+                    fail();
+                } catch (IndexOutOfBoundsException expected) {
+                    // fall through
+                }
+            }
+        }
+    }
+
     @Test
     public void equals_is_based_on_the_contents() {
         final var data1 = new OctetString[] {
@@ -106,6 +183,70 @@ public class OctetStringTest {
         }
     }
 
+    @Test
+    public void hash64_matches_reference_values() {
+        assertEquals(0xef46db3751d8e999L, OctetString.empty().hash64());
+        assertEquals(0xd24ec4f1a98c6e5bL, OctetString.of('a').hash64());
+        assertEquals(0x44bc2cf5ad770999L, OctetString.of('a', 'b', 'c').hash64());
+        final int[] lengths = { 3, 33, 100, 1000 };
+        final long[] unseeded = { 0x31d2363f52e564c9L, 0x50a7cfc7ba588784L, 0xa61f8d4c170fe531L, 0x5f235fa033f1a3fbL };
+        final long[] seeded = { 0x9d4924470275ade4L, 0x084e57ff5261ca03L, 0x8505071c55df3ceaL, 0xcae77557f74b1010L };
+        for (int k = 0; k < lengths.length; ++k) {
+            final var builder = OctetString.builder().append(0xff);
+            for (int p = 0; p < lengths[k]; ++p) builder.append(p * 7 + 3);
+            final var str = builder.toOctetString().substring(1);
+            assertEquals(unseeded[k], str.hash64());
+            assertEquals(seeded[k], str.hash64(0x123456789L));
+            assertEquals(unseeded[k], str.toOffHeap().hash64());
+            assertEquals(seeded[k], str.toBuilder().hash64(0x123456789L));
+        }
+    }
+
+    @Test
+    public void hash64_of_segmented_builder() {
+        final var rng = new Random();
+        for (int n = 0; n < 50; ++n) {
+            final var builder = OctetString.segmentedBuilder(16 + rng.nextInt(40));
+            final int parts = rng.nextInt(20);
+            for (int p = 0; p < parts; ++p) builder.append(OctetString.randomString(rng.nextInt(70)));
+            final var seed = rng.nextLong();
+            assertEquals(builder.toOctetString().hash64(seed), builder.hash64(seed));
+        }
+    }
+
+    @Test
+    public void checksums_match_jdk() {
+        final var rng = new Random();
+        for (int n = 0; n < 50; ++n) {
+            final var str = OctetString.randomString(rng.nextInt(3000));
+            final int start = rng.nextInt(str.length() + 1);
+            final var slice = str.substring(start);
+            final var bytes = slice.toByteArray();
+            final var crc = new CRC32C();
+            crc.update(bytes);
+            final var adler = new Adler32();
+            adler.update(bytes);
+            final var builder = OctetString.segmentedBuilder(16 + rng.nextInt(40));
+            builder.append(slice);
+            for (var s: new OctetString[] { slice, slice.toOffHeap(), OctetString.concat(str.substring(start, start + (slice.length() >> 1)).toOffHeap(), slice.substring(slice.length() >> 1)) }) {
+                assertEquals(crc.getValue(), s.crc32c());
+                assertEquals(adler.getValue(), s.adler32());
+            }
+            assertEquals(crc.getValue(), builder.crc32c());
+            assertEquals(adler.getValue(), builder.adler32());
+            assertEquals(crc.getValue(), slice.toBuilder().crc32c());
+        }
+    }
+
+    @Test
+    public void update_is_incremental() {
+        final var a = OctetString.randomString(100);
+        final var b = OctetString.randomString(200);
+        final var crc = new CRC32C();
+        b.update(a.update(crc));
+        assertEquals(OctetString.concat(a, b).crc32c(), crc.getValue());
+    }
+
     // endregion
 
     // region ToString, FromString
@@ -123,6 +264,89 @@ public class OctetStringTest {
         }
     }
 
+    @Test
+    public void toHex_round_trips() throws IOException {
+        final var rng = new Random(13);
+        assertEquals("", OctetString.empty().toHex());
+        assertEquals("00017f80ff", OctetString.of(0, 1, 127, 128, 255).toHex());
+        assertEquals(OctetString.of(0xab, 0xcd, 0xef), OctetString.fromHex("ABcdEf"));
+        for (int p = 0; p < 100; ++p) {
+            final var expected = OctetString.randomString(1 + rng.nextInt(3000), rng).substring(1);
+            final var hex = expected.toHex();
+            assertEquals(hex, expected.toOffHeap().toHex());
+            assertEquals(expected, OctetString.fromHex(hex));
+            assertEquals(hex, expected.appendHexTo(new StringBuilder()).toString());
+            assertEquals(hex, expected.toOffHeap().appendHexTo(new StringWriter()).toString());
+            final var builder = OctetString.builder().append(7).appendHex(hex);
+            assertEquals(OctetString.of(7).toBuilder().append(expected).toOctetString(), builder.toOctetString());
+        }
+    }
+
+    @Test
+    public void fromHex_rejects_malformed_input() {
+        for (var s: new String[] { "0", "0g", "g0", "12 4", "\u00e4b" }) {
+            try {
+                OctetString.fromHex(s);
+                fail(s);
+            } catch (IllegalArgumentException expected) {
+                // fall through
+            }
+        }
+        final var builder = OctetString.builder().append(1);
+        try {
+            builder.appendHex("00zz");
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals(OctetString.of(1), builder.toOctetString());
+        }
+    }
+
+    @Test
+    public void streaming_base64_matches_toString() throws IOException {
+        final var rng = new Random();
+        for (int p = 0; p < 60; ++p) {
+            final var expected = OctetString.randomString(p < 50? p : rng.nextInt(p < 55? 20000 : 300000));
+            final var text = expected.toString();
+            final var bytes = new ByteArrayOutputStream();
+            expected.toOffHeap().writeBase64To(bytes);
+            assertEquals(text, bytes.toString(StandardCharsets.US_ASCII));
+            assertEquals(text, expected.appendBase64To(new StringBuilder()).toString());
+            assertEquals(expected, OctetString.readBase64(new ByteArrayInputStream(bytes.toByteArray())));
+            assertEquals(expected, OctetString.segmentedBuilder(100).appendBase64(text).toOctetString());
+            assertEquals(expected, OctetString.builder().appendBase64("**" + text + "*", 2, text.length() + 2).toOctetString());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendBase64_rejects_malformed_input() {
+        OctetString.builder().appendBase64("AB+/");
+    }
+
+    @Test
+    public void utf8_agrees_with_jdk() {
+        final var rng = new Random();
+        final char[] alphabet = { 'a', 'Z', '0', '\u007f', '\u0080', '\u00e4', '\u07ff', '\u0800', '\u20ac', '\uffff', '\ud83d', '\ude00' };
+        for (int n = 0; n < 300; ++n) {
+            final var text = new StringBuilder();
+            final int len = rng.nextInt(n < 100? 20 : 3000);
+            final boolean ascii = rng.nextBoolean();
+            for (int p = 0; p < len; ++p) text.append(ascii? (char) rng.nextInt(128) : alphabet[rng.nextInt(alphabet.length)]);
+            final var string = text.toString();
+            final var expected = OctetString.fromByteArray(string.getBytes(StandardCharsets.UTF_8));
+            assertEquals(expected, OctetString.fromUtf8(string));
+            assertEquals(expected, OctetString.fromUtf8(text));
+            assertEquals(expected, OctetString.builder().appendUtf8(text).toOctetString());
+            assertEquals(expected, OctetString.segmentedBuilder(16).appendUtf8(text).toOctetString());
+            final int start = rng.nextInt(len + 1);
+            final var slice = OctetString.fromByteArray(string.substring(start).getBytes(StandardCharsets.UTF_8));
+            assertEquals(slice, OctetString.builder().append(7).appendUtf8(text, start, len).toOctetString().substring(1));
+            assertEquals(new String(expected.toByteArray(), StandardCharsets.UTF_8), expected.toUtf8String());
+            assertEquals(new String(expected.toByteArray(), StandardCharsets.UTF_8), expected.toOffHeap().toUtf8String());
+        }
+        assertEquals("h\u00e4llo \ud83d\ude00", OctetString.fromUtf8("h\u00e4llo \ud83d\ude00").toUtf8String());
+        assertEquals(OctetString.of('a', '?', 'b'), OctetString.fromUtf8(new StringBuilder("a\ud83db")));
+    }
+
     // endregion
 
     // region Builder
@@ -163,6 +387,726 @@ public class OctetStringTest {
         assertEquals(offs, rs.length());
     }
 
+    @Test
+    public void segmented_builder_matches_plain_builder() {
+        final var rng = new Random();
+        final var plain = OctetString.builder();
+        final var segmented = OctetString.segmentedBuilder(64);
+        for (int p = 0; p < 200; ++p) {
+            final var chunk = OctetString.randomString(rng.nextInt(150));
+            final var offHeap = chunk.toOffHeap();
+            final long value = rng.nextLong();
+            plain.append(p).append(chunk).append(value, ByteOrder.BIG_ENDIAN).appendVarLong(value).append(chunk.toByteArray());
+            segmented.append(p).append(offHeap).append(value, ByteOrder.BIG_ENDIAN).appendVarLong(value).append(chunk.toByteArray());
+            assertEquals(plain.length(), segmented.length());
+        }
+        assertEquals(plain.toOctetString(), segmented.toOctetString());
+        segmented.clear();
+        assertEquals(0, segmented.length());
+        assertEquals(OctetString.empty(), segmented.toOctetString());
+    }
+
+    @Test
+    public void segmented_builder_writes_to_channels() throws IOException {
+        final var segmented = OctetString.segmentedBuilder(100);
+        for (int p = 0; p < 50; ++p) segmented.append(OctetString.randomString(77));
+        final var expected = segmented.toOctetString();
+        final var sink = new ByteArrayOutputStream();
+        segmented.writeTo(Channels.newChannel(sink));
+        assertEquals(expected, OctetString.fromByteArray(sink.toByteArray()));
+        final var file = Files.createTempFile("octets", ".bin");
+        try {
+            try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                segmented.writeTo(channel);
+            }
+            assertEquals(expected, OctetString.fromByteArray(Files.readAllBytes(file)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void detach_answers_contents_and_clears() {
+        final var full = OctetString.builder();
+        for (int p = 0; p < 16; ++p) full.append(p);
+        final var expected = full.toOctetString();
+        final var detached = full.detach();
+        assertEquals(expected, detached);
+        assertEquals(0, full.length());
+        for (int p = 0; p < 16; ++p) full.append(0xff);
+        assertEquals(expected, detached);
+        final var sparse = OctetString.builder().append(1).append(2);
+        assertEquals(OctetString.of(1, 2), sparse.detach());
+        assertEquals(OctetString.of(3), sparse.append(3).detach());
+        assertEquals(OctetString.empty(), sparse.detach());
+    }
+
+    @Test
+    public void detach_keeps_chunk_size_of_segmented_builders() {
+        final var builder = OctetString.segmentedBuilder(64);
+        for (int p = 0; p < 64; ++p) builder.append(p);
+        assertEquals(64, builder.detach().length());
+        final var chunk = builder.storage();
+        assertEquals(64, chunk.length);
+        for (int p = 0; p < 64; ++p) builder.append(p);
+        assertSame(chunk, builder.storage());
+        for (int p = 64; p < 100; ++p) builder.append(p);
+        assertEquals(64, builder.storage().length);
+        final var expected = OctetString.builder();
+        for (int p = 0; p < 100; ++p) expected.append(p);
+        assertEquals(expected.toOctetString(), builder.toOctetString());
+    }
+
+    @Test
+    public void build_uses_fresh_builders_when_nested() {
+        final var result = OctetString.build(outer -> {
+            outer.append(1);
+            final var inner = OctetString.build(b -> b.append(2).append(3));
+            outer.append(inner).append(4);
+        });
+        assertEquals(OctetString.of(1, 2, 3, 4), result);
+        assertEquals(OctetString.of(5), OctetString.build(b -> b.append(5)));
+        assertEquals(OctetString.empty(), OctetString.build(b -> {}));
+    }
+
+    // endregion
+
+    // region Searching
+
+    @Test
+    public void indexOf_octet_agrees_with_naive_scan() {
+        final var rng = new Random();
+        for (int n = 0; n < 200; ++n) {
+            final var builder = OctetString.builder();
+            final int len = rng.nextInt(100);
+            for (int p = 0; p < len; ++p) builder.append(rng.nextInt(8) == 0? 0x80 + rng.nextInt(3) : rng.nextInt(256));
+            final var str = builder.toOctetString();
+            for (var s: new OctetString[] { str, str.toOffHeap(), str.substring(len >> 1).toOffHeap() }) {
+                for (int octet = 0x80; octet < 0x83; ++octet) {
+                    final int from = rng.nextInt(len + 2) - 1;
+                    assertEquals(naiveIndexOf(s, OctetString.of(octet), from), s.indexOf(octet, from));
+                    assertEquals(naiveLastIndexOf(s, OctetString.of(octet), from), s.lastIndexOf(octet, from));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void indexOf_needle_agrees_with_naive_scan() {
+        final var rng = new Random();
+        for (int n = 0; n < 300; ++n) {
+            final int len = rng.nextInt(n < 150? 40 : 400);
+            final var builder = OctetString.builder().append(9);
+            for (int p = 0; p < len; ++p) builder.append(rng.nextInt(3));
+            final var str = builder.toOctetString().substring(1);
+            final var needleBuilder = OctetString.builder();
+            final int nlen = rng.nextInt(8);
+            for (int p = 0; p < nlen; ++p) needleBuilder.append(rng.nextInt(3));
+            final var needle = needleBuilder.toOctetString();
+            final int from = rng.nextInt(len + 2) - 1;
+            for (var s: new OctetString[] { str, str.toOffHeap() }) {
+                assertEquals(naiveIndexOf(s, needle, from), s.indexOf(needle, from));
+                assertEquals(naiveIndexOf(s, needle, from), s.indexOf(needle.toOffHeap(), from));
+                assertEquals(naiveLastIndexOf(s, needle, from), s.lastIndexOf(needle, from));
+                assertEquals(naiveIndexOf(s, needle, 0) >= 0, s.contains(needle));
+            }
+        }
+    }
+
+    @Test
+    public void indexOf_long_needle_agrees_with_naive_scan() {
+        final var rng = new Random();
+        for (int n = 0; n < 100; ++n) {
+            final int len = 200 + rng.nextInt(1000);
+            final var builder = OctetString.builder();
+            for (int p = 0; p < len; ++p) builder.append(rng.nextInt(2));
+            final var str = builder.toOctetString();
+            final int nlen = 4 + rng.nextInt(60);
+            final int at = rng.nextInt(len - nlen);
+            final var needle = rng.nextBoolean()? str.substring(at, at + nlen) : str.substring(at, at + nlen).toBuilder().append(2).toOctetString();
+            final var rope = OctetString.concat(str.substring(0, len / 3), str.substring(len / 3).toOffHeap());
+            final int from = rng.nextInt(len + 2) - 1;
+            for (var s: new OctetString[] { str, str.toOffHeap(), rope }) {
+                for (var ns: new OctetString[] { needle, needle.toOffHeap() }) {
+                    assertEquals(naiveIndexOf(s, ns, from), s.indexOf(ns, from));
+                    assertEquals(naiveLastIndexOf(s, ns, from), s.lastIndexOf(ns, from));
+                    assertEquals(naiveLastIndexOf(s, ns, len), s.lastIndexOf(ns));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void split_retains_empty_pieces() {
+        final var str = OctetString.of(1, 0, 0, 2, 3, 0);
+        final var pieces = str.split(0).collect(Collectors.toList());
+        assertEquals(List.of(OctetString.of(1), OctetString.empty(), OctetString.of(2, 3), OctetString.empty()), pieces);
+        assertEquals(List.of(OctetString.empty()), OctetString.empty().split(0).collect(Collectors.toList()));
+        assertEquals(List.of(OctetString.of(1, 2)), OctetString.of(1, 2).split(0).collect(Collectors.toList()));
+    }
+
+    // endregion
+
+    // region Slices
+
+    @Test
+    public void substring_behaves_like_a_copy() {
+        final var whole = OctetString.randomString(257);
+        final var bytes = whole.toByteArray();
+        for (int start = 0; start < 257; start += 17) {
+            for (int end = start; end <= 257; end += 23) {
+                final var slice = whole.substring(start, end);
+                final var copy = OctetString.fromByteArray(bytes, start, end);
+                assertEquals(copy, slice);
+                assertEquals(slice, copy);
+                assertEquals(copy.hashCode(), slice.hashCode());
+                assertEquals(0, copy.compareTo(slice));
+                assertArrayEquals(copy.toByteArray(), slice.toByteArray());
+                assertEquals(copy.toString(), slice.toString());
+                assertEquals(copy.toByteBuffer(), slice.toByteBuffer());
+            }
+        }
+    }
+
+    @Test
+    public void substring_of_substring() {
+        final var whole = OctetString.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        final var slice = whole.substring(2, 9).substring(1, 5);
+        assertEquals(OctetString.of(3, 4, 5, 6), slice);
+        assertEquals(3, slice.octetAt(0));
+        assertTrue(whole.substring(3).startsWith(slice));
+        assertTrue(whole.substring(0, 7).endsWith(slice));
+        assertTrue(slice.startsWith(whole.substring(3, 5)));
+        assertFalse(slice.endsWith(whole.substring(3, 5)));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void octetAt_checks_slice_bounds() {
+        OctetString.of(0, 1, 2, 3, 4, 5).substring(1, 3).octetAt(2);
+    }
+
+    @Test
+    public void compact_drops_parent_storage() {
+        final var whole = OctetString.randomString(100);
+        final var compact = whole.compact();
+        assertSame(whole, compact);
+        final var slice = whole.substring(10, 20);
+        final var copy = slice.compact();
+        assertEquals(slice, copy);
+        assertSame(copy, copy.compact());
+    }
+
+    // endregion
+
+    // region Random Strings
+
+    @Test
+    public void randomString_uses_given_generator() {
+        final var first = OctetString.randomString(100, new Random(99));
+        final var second = OctetString.randomString(100, new Random(99));
+        assertEquals(first, second);
+        assertEquals(100, first.length());
+        assertEquals(OctetString.empty(), OctetString.randomString(0, new Random()));
+    }
+
+    @Test
+    public void randomStrings_answers_distinct_slices() {
+        final var strings = OctetString.randomStrings(1000, 16);
+        assertEquals(1000, strings.length);
+        assertEquals(1000, Arrays.stream(strings).distinct().count());
+        for (var s: strings) assertEquals(16, s.length());
+        assertEquals(16, strings[999].compact().length());
+        assertEquals(0, OctetString.randomStrings(0, 10).length);
+        for (var s: OctetString.randomStrings(3, 0)) assertEquals(OctetString.empty(), s);
+    }
+
+    // endregion
+
+    // region Iteration
+
+    @Test
+    public void iteration_produces_unsigned_octets() {
+        final var str = OctetString.of(0, 1, 127, 128, 200, 255);
+        final int[] expected = { 0, 1, 127, 128, 200, 255 };
+        for (var s: new OctetString[] { str, str.toOffHeap(), OctetString.concat(str.substring(0, 3), str.substring(3).toOffHeap()) }) {
+            final var fromIterator = new ArrayList<Integer>();
+            s.iterator().forEachRemaining((int o) -> fromIterator.add(o));
+            assertEquals(Arrays.stream(expected).boxed().collect(Collectors.toList()), fromIterator);
+            final var fromForEach = new ArrayList<Integer>();
+            s.forEachOctet(fromForEach::add);
+            assertEquals(fromIterator, fromForEach);
+            assertArrayEquals(expected, s.octets().toArray());
+            for (int p = 0; p < s.length(); ++p) assertEquals(s.octetAt(p), expected[p]);
+        }
+    }
+
+    @Test
+    public void octets_split_for_parallel_streams() {
+        final var str = OctetString.randomString(100000).substring(3);
+        final long expected = str.octets().asLongStream().sum();
+        assertEquals(expected, str.octets().parallel().asLongStream().sum());
+        assertEquals(expected, str.toOffHeap().octets().parallel().asLongStream().sum());
+        assertArrayEquals(str.octets().toArray(), str.octets().parallel().toArray());
+        final var spliterator = str.spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE));
+        assertEquals(str.length(), spliterator.getExactSizeIfKnown());
+        final var prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        assertEquals(str.length(), prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown());
+    }
+
+    // endregion
+
+    // region Off-Heap Storage
+
+    @Test
+    public void offHeap_behaves_like_heap() throws IOException, ClassNotFoundException {
+        final var heap = OctetString.randomString(1000);
+        final var direct = heap.toOffHeap();
+        assertTrue(direct.isOffHeap());
+        assertFalse(heap.isOffHeap());
+        assertEquals(heap, direct);
+        assertEquals(direct, heap);
+        assertEquals(heap.hashCode(), direct.hashCode());
+        assertEquals(0, heap.compareTo(direct));
+        assertEquals(heap.toString(), direct.toString());
+        assertArrayEquals(heap.toByteArray(), direct.toByteArray());
+        for (int p = 0; p < 1000; ++p) assertEquals(heap.octetAt(p), direct.octetAt(p));
+        assertEquals(heap.substring(17, 400), direct.substring(17, 400));
+        assertTrue(direct.startsWith(heap.substring(0, 10)));
+        assertTrue(heap.endsWith(direct.substring(990)));
+        assertEquals(heap.substring(3, 9), direct.substring(3, 9).compact());
+        assertFalse(direct.substring(3, 9).compact().isOffHeap());
+        assertEquals(heap, rountrip(direct));
+        assertEquals(ByteOrder.BIG_ENDIAN.longAt(heap, 5), ByteOrder.BIG_ENDIAN.longAt(direct, 5));
+    }
+
+    @Test
+    public void offHeap_compareTo_based_on_unsigned_values() {
+        final var b1 = OctetString.of(1, 2, 255).toOffHeap();
+        final var b2 = OctetString.of(1, 2, 0).toOffHeap();
+        final var b3 = OctetString.of(1, 2).toOffHeap();
+        assertTrue(b1.compareTo(b2) > 0);
+        assertTrue(b2.compareTo(b1) < 0);
+        assertTrue(b3.compareTo(b2) < 0);
+        assertTrue(b2.compareTo(b3) > 0);
+        assertTrue(OctetString.of(1, 2, 255).compareTo(b2) > 0);
+    }
+
+    @Test
+    public void map_reads_file_region() throws IOException {
+        final var file = Files.createTempFile("octets", ".bin");
+        try {
+            final var expected = OctetString.randomString(4096);
+            Files.write(file, expected.toByteArray());
+            final var whole = OctetString.map(file);
+            assertTrue(whole.isOffHeap());
+            assertEquals(expected, whole);
+            final var region = OctetString.map(file, 100, 200);
+            assertEquals(expected.substring(100, 300), region);
+            assertEquals(OctetString.empty(), OctetString.map(file, 100, 0));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // endregion
+
+    // region Reader
+
+    @Test
+    public void reader_decodes_sequentially() {
+        final var str = OctetString.builder()
+            .append(0xfe)
+            .append(0x01020304, ByteOrder.BIG_ENDIAN)
+            .append(-5L, ByteOrder.LITTLE_ENDIAN)
+            .append(OctetString.of(9, 8, 7))
+            .append((short) 513, ByteOrder.LITTLE_ENDIAN)
+            .toOctetString();
+        for (var s: new OctetString[] { str, str.toOffHeap() }) {
+            final var reader = s.reader();
+            assertEquals(s.length(), reader.remaining());
+            assertEquals(0xfe, reader.readOctet());
+            assertEquals(0x01020304, reader.readInt(ByteOrder.BIG_ENDIAN));
+            reader.mark();
+            assertEquals(-5L, reader.readLong(ByteOrder.LITTLE_ENDIAN));
+            reader.reset();
+            reader.skip(8);
+            assertEquals(OctetString.of(9, 8, 7), reader.readSlice(3));
+            assertEquals(2, reader.remaining());
+            assertEquals((short) 513, reader.readShort(ByteOrder.LITTLE_ENDIAN));
+            assertFalse(reader.hasRemaining());
+        }
+    }
+
+    @Test
+    public void reader_does_not_advance_on_failure() {
+        final var reader = OctetString.of(1, 2, 3).reader();
+        reader.skip(1);
+        try {
+            reader.readInt(ByteOrder.BIG_ENDIAN);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            // fall through
+        }
+        try {
+            reader.readSlice(3);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            // fall through
+        }
+        assertEquals(1, reader.position());
+        assertEquals(2, reader.readOctet());
+    }
+
+    @Test
+    public void varints_round_trip() {
+        final long[] longs = { 0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, -1, Long.MIN_VALUE, Long.MAX_VALUE };
+        final int[] ints = { 0, 1, 127, 128, 300, -1, -64, 63, Integer.MIN_VALUE, Integer.MAX_VALUE };
+        final var builder = OctetString.builder();
+        for (var v: longs) builder.appendVarLong(v).appendSignedVarLong(v);
+        for (var v: ints) builder.appendVarInt(v).appendSignedVarInt(v);
+        final var reader = builder.toOctetString().reader();
+        for (var v: longs) {
+            assertEquals(v, reader.readVarLong());
+            assertEquals(v, reader.readSignedVarLong());
+        }
+        for (var v: ints) {
+            assertEquals(v, reader.readVarInt());
+            assertEquals(v, reader.readSignedVarInt());
+        }
+        assertFalse(reader.hasRemaining());
+    }
+
+    @Test
+    public void varint_encoding() {
+        assertEquals(OctetString.of(0x00), OctetString.builder().appendVarInt(0).toOctetString());
+        assertEquals(OctetString.of(0x7f), OctetString.builder().appendVarInt(127).toOctetString());
+        assertEquals(OctetString.of(0xac, 0x02), OctetString.builder().appendVarInt(300).toOctetString());
+        assertEquals(OctetString.of(0xff, 0xff, 0xff, 0xff, 0x0f), OctetString.builder().appendVarInt(-1).toOctetString());
+        assertEquals(OctetString.of(0x03), OctetString.builder().appendSignedVarInt(-2).toOctetString());
+        final var reader = OctetString.of(0xac, 0x02, 0x05).reader();
+        assertEquals(300, reader.readVarInt());
+        assertEquals(2, reader.position());
+    }
+
+    @Test
+    public void varint_decoding_rejects_bad_input() {
+        final var truncated = OctetString.of(0x01, 0x80, 0x80).reader().skip(1);
+        try {
+            truncated.readVarInt();
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            assertEquals(1, truncated.position());
+        }
+        final var overlong = OctetString.of(0x80, 0x80, 0x80, 0x80, 0x80, 0x01).reader();
+        try {
+            overlong.readVarInt();
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals(0, overlong.position());
+        }
+    }
+
+    @Test
+    public void varint_decoding_rejects_overflow() {
+        final var intOverflow = OctetString.of(0xff, 0xff, 0xff, 0xff, 0x7f).reader();
+        try {
+            intOverflow.readVarInt();
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals(0, intOverflow.position());
+        }
+        assertEquals(-1, OctetString.of(0xff, 0xff, 0xff, 0xff, 0x0f).reader().readVarInt());
+        assertEquals(0x7ffffffffL, intOverflow.readVarLong());
+        final var longOverflow = OctetString.of(0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0x02).reader();
+        try {
+            longOverflow.readVarLong();
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals(0, longOverflow.position());
+        }
+        assertEquals(-1L, OctetString.of(0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0x01).reader().readVarLong());
+    }
+
+    // endregion
+
+    // region Streams and Channels
+
+    @Test
+    public void writeTo_stream_writes_contents() throws IOException {
+        final var heap = OctetString.randomString(20000);
+        for (var s: new OctetString[] { heap, heap.substring(5, 17000), heap.toOffHeap(), OctetString.concat(heap, heap.toOffHeap()), OctetString.empty() }) {
+            final var bytes = new ByteArrayOutputStream();
+            s.writeTo(bytes);
+            assertArrayEquals(s.toByteArray(), bytes.toByteArray());
+        }
+    }
+
+    @Test
+    public void readFrom_reads_up_to_limit() throws IOException {
+        final var expected = OctetString.randomString(50000);
+        assertEquals(expected, OctetString.readFrom(Channels.newChannel(new ByteArrayInputStream(expected.toByteArray())), 100000));
+        assertEquals(expected.substring(0, 30000), OctetString.readFrom(Channels.newChannel(new ByteArrayInputStream(expected.toByteArray())), 30000));
+        assertEquals(expected, OctetString.readFrom(new ByteArrayInputStream(expected.toByteArray()), 100000));
+        assertEquals(expected.substring(0, 10), OctetString.readFrom(new ByteArrayInputStream(expected.toByteArray()), 10));
+        assertEquals(OctetString.empty(), OctetString.readFrom(new ByteArrayInputStream(new byte[0]), 10));
+        final var file = Files.createTempFile("octets", ".bin");
+        try {
+            Files.write(file, expected.toByteArray());
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                channel.position(1000);
+                assertEquals(expected.substring(1000, 2000), OctetString.readFrom(channel, 1000));
+                assertEquals(expected.substring(2000), OctetString.readFrom(channel, Integer.MAX_VALUE));
+                assertEquals(OctetString.empty(), OctetString.readFrom(channel, 10));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void readFully_reads_exact_length() throws IOException {
+        final var expected = OctetString.randomString(5000);
+        final var channel = Channels.newChannel(new ByteArrayInputStream(expected.toByteArray()));
+        assertEquals(expected.substring(0, 4000), OctetString.readFully(channel, 4000));
+        try {
+            OctetString.readFully(channel, 1001);
+            fail();
+        } catch (EOFException ignored) {
+            // fall through
+        }
+        final var stream = new ByteArrayInputStream(expected.toByteArray());
+        assertEquals(expected.substring(0, 4000), OctetString.readFully(stream, 4000));
+        assertEquals(OctetString.empty(), OctetString.readFully(stream, 0));
+        try {
+            OctetString.readFully(stream, 1001);
+            fail();
+        } catch (EOFException ignored) {
+            // fall through
+        }
+    }
+
+    @Test
+    public void builder_views_append_to_builder() throws IOException {
+        final var payload = OctetString.randomString(20000);
+        for (var builder: new OctetString.Builder[] { OctetString.builder(), OctetString.segmentedBuilder(100) }) {
+            builder.append(1);
+            try (var out = new DataOutputStream(builder.asOutputStream())) {
+                out.writeInt(0x01020304);
+                payload.writeTo(out);
+                out.write(0xff);
+            }
+            try (var channel = builder.asChannel()) {
+                assertEquals(payload.length(), channel.write(payload.toByteBuffer()));
+                assertEquals(payload.length(), channel.write(payload.toOffHeap().toByteBuffer()));
+            }
+            final var expected = OctetString.builder().append(1).append(0x01020304, ByteOrder.BIG_ENDIAN).append(payload).append(0xff).append(payload).append(payload).toOctetString();
+            assertEquals(expected, builder.toOctetString());
+        }
+        final var channel = OctetString.builder().asChannel();
+        channel.close();
+        assertFalse(channel.isOpen());
+        try {
+            channel.write(ByteBuffer.allocate(1));
+            fail();
+        } catch (ClosedChannelException expected) {
+            // fall through
+        }
+    }
+
+    @Test
+    public void asInputStream_reads_contents() throws IOException {
+        final var heap = OctetString.randomString(10000);
+        for (var s: new OctetString[] { heap, heap.substring(7, 9000), heap.toOffHeap(), OctetString.concat(heap, heap.toOffHeap()) }) {
+            assertArrayEquals(s.toByteArray(), s.asInputStream().readAllBytes());
+            final var in = s.asInputStream();
+            assertEquals(s.octetAt(0), in.read());
+            in.mark(0);
+            assertEquals(100, in.skip(100));
+            final var chunk = new byte[50];
+            assertEquals(50, in.read(chunk));
+            assertEquals(s.substring(101, 151), OctetString.fromByteArray(chunk));
+            in.reset();
+            assertEquals(s.length() - 1, in.available());
+            final var rest = new ByteArrayOutputStream();
+            assertEquals(s.length() - 1, in.transferTo(rest));
+            assertEquals(s.substring(1), OctetString.fromByteArray(rest.toByteArray()));
+            assertEquals(-1, in.read());
+            assertEquals(-1, in.read(chunk));
+        }
+    }
+
+    // endregion
+
+    // region Ropes
+
+    @Test
+    public void concat_behaves_like_copy() throws IOException, ClassNotFoundException {
+        final var random = new Random(4711);
+        for (int k = 0; k < 50; ++k) {
+            final var parts = new OctetString[1 + random.nextInt(6)];
+            final var builder = OctetString.builder();
+            for (int p = 0; p < parts.length; ++p) {
+                final var part = OctetString.randomString(random.nextInt(40));
+                parts[p] = random.nextBoolean()? part : part.toOffHeap();
+                builder.append(part);
+            }
+            final var expected = builder.toOctetString();
+            final var rope = OctetString.concat(parts);
+            assertEquals(expected.length(), rope.length());
+            assertEquals(expected, rope);
+            assertEquals(rope, expected);
+            assertEquals(expected.hashCode(), rope.hashCode());
+            assertEquals(0, rope.compareTo(expected));
+            for (int p = 0; p < rope.length(); ++p) assertEquals(expected.octetAt(p), rope.octetAt(p));
+            for (int t = 0; t < 10 && rope.length() > 0; ++t) {
+                final int start = random.nextInt(rope.length());
+                final int end = start + random.nextInt(rope.length() - start + 1);
+                assertEquals(expected.substring(start, end), rope.substring(start, end));
+                assertEquals(isign(bytewiseCompare(expected, expected.substring(start, end))), isign(rope.compareTo(rope.substring(start, end))));
+            }
+            assertArrayEquals(expected.toByteArray(), rope.toByteArray());
+            assertEquals(expected.toHex(), rope.toHex());
+            assertEquals(expected, rountrip(rope));
+            assertEquals(expected, rope.toOffHeap());
+            assertEquals(expected.hash64(), rope.hash64());
+            if (rope.length() >= 8) assertEquals(ByteOrder.LITTLE_ENDIAN.longAt(expected, 0), ByteOrder.LITTLE_ENDIAN.longAt(rope, 0));
+        }
+    }
+
+    @Test
+    public void concat_flattens_nested_ropes() {
+        final var a = OctetString.of(1, 2);
+        final var b = OctetString.of(3).toOffHeap();
+        final var c = OctetString.of(4, 5, 6);
+        assertSame(a, OctetString.concat(a));
+        assertSame(a, OctetString.concat(OctetString.empty(), a, OctetString.empty()));
+        assertEquals(OctetString.empty(), OctetString.concat());
+        final var rope = OctetString.concat(OctetString.concat(a, b), c);
+        assertEquals(OctetString.of(1, 2, 3, 4, 5, 6), rope);
+        assertEquals(OctetString.of(2, 3, 4), rope.substring(1, 4));
+        assertEquals(OctetString.of(4, 5), rope.substring(3, 5));
+        assertTrue(rope.startsWith(OctetString.of(1, 2, 3)));
+        assertTrue(rope.endsWith(OctetString.of(3, 4, 5, 6)));
+        assertEquals(2, rope.indexOf(3));
+        assertEquals(3, rope.indexOf(OctetString.of(4, 5)));
+        assertTrue(rope.compareTo(OctetString.of(1, 2, 3, 4, 6)) < 0);
+        assertTrue(rope.compareTo(OctetString.of(1, 2, 3, 4, 5)) > 0);
+        assertFalse(rope.compact().isOffHeap());
+    }
+
+    @Test
+    public void ropeBuilder_collects_parts() {
+        final var random = new Random(17);
+        final var ropes = OctetString.ropeBuilder();
+        final var builder = OctetString.builder();
+        for (int k = 0; k < 20000; ++k) {
+            final var part = OctetString.randomString(random.nextInt(8));
+            ropes.append(k % 100 == 0? OctetString.concat(part, part) : part);
+            builder.append(part);
+            if (k % 100 == 0) builder.append(part);
+        }
+        final var expected = builder.toOctetString();
+        assertEquals(expected.length(), ropes.length());
+        final var rope = ropes.toOctetString();
+        assertEquals(expected, rope);
+        assertEquals(OctetString.concat(rope, rope), ropes.append(rope).toOctetString());
+        assertEquals(expected, rope);
+        final var a = OctetString.of(1, 2);
+        assertSame(a, ropes.clear().append(OctetString.empty()).append(a).toOctetString());
+        assertEquals(OctetString.empty(), ropes.clear().toOctetString());
+        assertEquals(0, ropes.length());
+    }
+
+    @Test
+    public void concat_writes_to_channels() throws IOException {
+        final var head = OctetString.randomString(1000);
+        final var tail = OctetString.randomString(3000).toOffHeap();
+        final var rope = OctetString.concat(head, tail.substring(1), head.substring(0, 10));
+        final var expected = OctetString.builder().append(head).append(tail.substring(1)).append(head.substring(0, 10)).toOctetString();
+        final var bytes = new ByteArrayOutputStream();
+        try (var channel = Channels.newChannel(bytes)) {
+            rope.writeTo(channel);
+            head.writeTo(channel);
+        }
+        assertEquals(OctetString.concat(expected, head), OctetString.fromByteArray(bytes.toByteArray()));
+        final var file = Files.createTempFile("octets", ".bin");
+        try {
+            try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                rope.writeTo(channel);
+            }
+            assertEquals(expected, OctetString.map(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // endregion
+
+    // region Bitwise Operations
+
+    @Test
+    public void bitwise_operations_agree_with_bytewise_loop() {
+        final var rng = new Random();
+        for (int n = 0; n < 200; ++n) {
+            final int len = rng.nextInt(40);
+            final var a = OctetString.randomString(len + 1).substring(1);
+            final var b = OctetString.randomString(len);
+            final var xor = OctetString.builder();
+            final var and = OctetString.builder();
+            final var or = OctetString.builder();
+            final var not = OctetString.builder();
+            int bits = 0;
+            for (int p = 0; p < len; ++p) {
+                xor.append(a.octetAt(p) ^ b.octetAt(p));
+                and.append(a.octetAt(p) & b.octetAt(p));
+                or.append(a.octetAt(p) | b.octetAt(p));
+                not.append(~a.octetAt(p));
+                bits += Integer.bitCount(a.octetAt(p));
+            }
+            final var rope = len < 2? a : OctetString.concat(a.substring(0, 1), a.substring(1).toOffHeap());
+            for (var s: new OctetString[] { a, a.toOffHeap(), rope }) {
+                assertEquals(xor.toOctetString(), s.xor(b));
+                assertEquals(and.toOctetString(), s.and(b.toOffHeap()));
+                assertEquals(or.toOctetString(), s.or(b));
+                assertEquals(not.toOctetString(), s.not());
+                assertEquals(bits, s.bitCount());
+                assertEquals(OctetString.of(9).toBuilder().append(xor.toOctetString()).toOctetString(), s.xor(b, OctetString.segmentedBuilder(16).append(9)).toOctetString());
+            }
+        }
+    }
+
+    @Test
+    public void leadingZeroBits_counts_from_first_octet() {
+        assertEquals(0, OctetString.empty().leadingZeroBits());
+        assertEquals(0, OctetString.of(0x80).leadingZeroBits());
+        assertEquals(7, OctetString.of(0x01).leadingZeroBits());
+        assertEquals(16, OctetString.of(0, 0).leadingZeroBits());
+        assertEquals(8 * 9 + 3, OctetString.of(0, 0, 0, 0, 0, 0, 0, 0, 0, 0x10, 0xff).leadingZeroBits());
+        assertEquals(8 * 5 + 1, OctetString.of(0, 0, 0, 0, 0, 0x7f, 0, 0, 0, 0).toOffHeap().leadingZeroBits());
+    }
+
+    @Test
+    public void compareDistance_agrees_with_xor() {
+        final var rng = new Random();
+        for (int n = 0; n < 500; ++n) {
+            final int len = rng.nextInt(24);
+            final var target = OctetString.randomString(len);
+            final var a = rng.nextBoolean()? target : OctetString.randomString(len);
+            final var b = rng.nextInt(4) == 0? a : OctetString.randomString(len);
+            final int expected = isign(target.xor(a).compareTo(target.xor(b)));
+            assertEquals(expected, isign(target.compareDistance(a, b)));
+            assertEquals(-expected, isign(target.compareDistance(b.toOffHeap(), a)));
+        }
+        try {
+            OctetString.of(1).compareDistance(OctetString.of(1), OctetString.of(1, 2));
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // fall through
+        }
+    }
+
     // endregion
 
     // region Serialization
@@ -171,6 +1115,7 @@ public class OctetStringTest {
     public void serialization() throws IOException, ClassNotFoundException {
         assertEquals(OctetString.empty(), rountrip(OctetString.empty()));
         assertEquals(OctetString.of(1, 2, 3, 4, 5), rountrip(OctetString.of(1, 2, 3, 4, 5)));
+        assertEquals(OctetString.of(2, 3, 4), rountrip(OctetString.of(1, 2, 3, 4, 5).substring(1, 4)));
     }
 
     private OctetString rountrip(OctetString object) throws IOException, ClassNotFoundException {
@@ -191,6 +1136,29 @@ public class OctetStringTest {
 
     // region Helpers
 
+    private static int naiveIndexOf(OctetString haystack, OctetString needle, int from) {
+        for (int p = Math.max(from, 0); p + needle.length() <= haystack.length(); ++p) {
+            if (haystack.substring(p, p + needle.length()).equals(needle)) return p;
+        }
+        return needle.isEmpty()? Math.min(Math.max(from, 0), haystack.length()) : -1;
+    }
+
+    private static int naiveLastIndexOf(OctetString haystack, OctetString needle, int from) {
+        for (int p = Math.min(from, haystack.length() - needle.length()); p >= 0; --p) {
+            if (haystack.substring(p, p + needle.length()).equals(needle)) return p;
+        }
+        return -1;
+    }
+
+    private static int bytewiseCompare(OctetString l, OctetString r) {
+        final int mlen = Math.min(l.length(), r.length());
+        for (int p = 0; p < mlen; ++p) {
+            final int diff = l.octetAt(p) - r.octetAt(p);
+            if (diff != 0) return diff;
+        }
+        return Integer.compare(l.length(), r.length());
+    }
+
     private static int isign(int s) {
         return s < 0? -1 : (s > 0? 1 : 0);
     }
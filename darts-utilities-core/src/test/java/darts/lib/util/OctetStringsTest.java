@@ -0,0 +1,104 @@
+package darts.lib.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class OctetStringsTest {
+
+    private static OctetString[] randomKeys(Random rng, int count, int maxLength, int alphabet) {
+        final var keys = new OctetString[count];
+        for (int k = 0; k < count; ++k) {
+            final var builder = OctetString.builder();
+            final int len = rng.nextInt(maxLength + 1);
+            for (int p = 0; p < len; ++p) builder.append(256 - alphabet + rng.nextInt(alphabet));
+            keys[k] = builder.toOctetString();
+        }
+        return keys;
+    }
+
+    @Test
+    public void sort_agrees_with_compareTo() {
+        final var rng = new Random(42);
+        for (int n: new int[] { 0, 1, 2, 31, 33, 500, 5000 }) {
+            for (int alphabet: new int[] { 2, 256 }) {
+                final var keys = randomKeys(rng, n, 12, alphabet);
+                final var expected = keys.clone();
+                Arrays.sort(expected);
+                OctetStrings.sort(keys);
+                assertArrayEquals(expected, keys);
+            }
+        }
+    }
+
+    @Test
+    public void sort_handles_long_common_prefixes_and_duplicates() {
+        final var rng = new Random(7);
+        final var prefix = OctetString.randomString(5000);
+        final var keys = new OctetString[3000];
+        for (int k = 0; k < keys.length; ++k) {
+            final var suffix = OctetString.of(rng.nextInt(4), rng.nextInt(4));
+            keys[k] = k % 3 == 0? prefix : OctetString.concat(prefix, suffix.substring(0, 1 + rng.nextInt(2)));
+        }
+        final var expected = keys.clone();
+        Arrays.sort(expected);
+        OctetStrings.sort(keys);
+        assertArrayEquals(expected, keys);
+    }
+
+    @Test
+    public void sort_handles_deeply_nested_prefixes() {
+        final var base = OctetString.randomString(5000);
+        final var keys = new OctetString[base.length()];
+        for (int k = 0; k < keys.length; ++k) keys[k] = base.substring(0, k);
+        Collections.shuffle(Arrays.asList(keys), new Random(11));
+        final var expected = keys.clone();
+        Arrays.sort(expected);
+        OctetStrings.sort(keys);
+        assertArrayEquals(expected, keys);
+    }
+
+    @Test
+    public void sort_is_stable() {
+        final var keys = new OctetString[200];
+        for (int k = 0; k < keys.length; ++k) keys[k] = OctetString.of(k % 5, 1).substring(0, 1);
+        final var expected = keys.clone();
+        Arrays.sort(expected);
+        OctetStrings.sort(keys);
+        for (int k = 0; k < keys.length; ++k) assertSame(expected[k], keys[k]);
+    }
+
+    @Test
+    public void parallel_sort_of_large_arrays() {
+        final var rng = new Random(1);
+        final var keys = randomKeys(rng, 200000, 20, 256);
+        final var expected = keys.clone();
+        Arrays.sort(expected);
+        OctetStrings.sort(keys);
+        assertArrayEquals(expected, keys);
+    }
+
+    @Test
+    public void sort_of_lists_and_ranges() {
+        final var rng = new Random(3);
+        final var keys = randomKeys(rng, 1000, 8, 16);
+        final var list = new LinkedList<>(Arrays.asList(keys));
+        final var expected = new ArrayList<>(list);
+        expected.sort(null);
+        OctetStrings.sort(list);
+        assertEquals(expected, list);
+        final var range = keys.clone();
+        OctetStrings.sort(range, 100, 900);
+        final var sorted = Arrays.copyOfRange(keys, 100, 900);
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, Arrays.copyOfRange(range, 100, 900));
+        assertArrayEquals(Arrays.copyOfRange(keys, 0, 100), Arrays.copyOfRange(range, 0, 100));
+        assertArrayEquals(Arrays.copyOfRange(keys, 900, 1000), Arrays.copyOfRange(range, 900, 1000));
+    }
+}